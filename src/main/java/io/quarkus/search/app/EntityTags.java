@@ -0,0 +1,54 @@
+package io.quarkus.search.app;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
+
+import org.jboss.resteasy.reactive.RestResponse;
+
+/**
+ * Entity tags for responses that only change when a new index generation gets committed.
+ * <p>
+ * Tags are derived from the index generation and a canonical form of the request,
+ * so they can be computed, and conditional requests answered,
+ * without executing any search.
+ */
+final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    /**
+     * @param generation The index generation the response is computed from.
+     * @param canonicalRequest A canonical representation of the request (path and canonical query string).
+     * @return An entity tag for the response to this request.
+     */
+    static EntityTag of(String generation, String canonicalRequest) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256")
+                    .digest(canonicalRequest.getBytes(StandardCharsets.UTF_8));
+            return new EntityTag(generation + "-" + HexFormat.of().formatHex(digest, 0, 16));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return A "304 Not Modified" response if the request's preconditions (If-None-Match) match the given tag,
+     *         {@code null} otherwise.
+     */
+    static <T> RestResponse<T> notModifiedOrNull(Request request, EntityTag tag) {
+        if (request.evaluatePreconditions(tag) == null) {
+            return null;
+        }
+        return RestResponse.ResponseBuilder.<T> notModified(tag).build();
+    }
+
+    static <T> RestResponse<T> ok(T entity, EntityTag tag) {
+        return RestResponse.ResponseBuilder.ok(entity).tag(tag).build();
+    }
+}
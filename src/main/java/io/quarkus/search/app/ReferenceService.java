@@ -1,81 +1,192 @@
 package io.quarkus.search.app;
 
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Supplier;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.transaction.Transactional;
+import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 
-import io.quarkus.search.app.cache.MethodNameCacheKeyGenerator;
 import io.quarkus.search.app.entity.Guide;
 import io.quarkus.search.app.entity.Language;
+import io.quarkus.search.app.indexing.IndexGeneration;
 
-import io.quarkus.cache.Cache;
-import io.quarkus.cache.CacheName;
-import io.quarkus.cache.CacheResult;
+import io.quarkus.logging.Log;
 
-import org.hibernate.search.engine.search.aggregation.AggregationKey;
+import org.hibernate.search.engine.search.projection.dsl.ProjectionFinalStep;
 import org.hibernate.search.mapper.orm.session.SearchSession;
 
 import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.jboss.resteasy.reactive.RestQuery;
+import org.jboss.resteasy.reactive.RestResponse;
 
 @ApplicationScoped
 @Path("/")
-@Transactional
 @org.jboss.resteasy.reactive.Cache(maxAge = 120)
 public class ReferenceService {
 
-    private static final String REFERENCE_CACHE = "reference-cache";
-
-    @CacheName(REFERENCE_CACHE)
-    Cache cache;
+    private static final int LOAD_SCROLL_CHUNK_SIZE = 1000;
 
     @Inject
     SearchSession session;
 
+    @Inject
+    IndexGeneration indexGeneration;
+
+    private volatile ReferenceSnapshot snapshot;
+
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Operation(summary = "List available versions")
     @Path("/versions")
-    @CacheResult(cacheName = REFERENCE_CACHE, keyGenerator = MethodNameCacheKeyGenerator.class)
-    public List<String> versions() {
-        return listAllValues("quarkusVersion", QuarkusVersions.COMPARATOR.reversed());
+    public RestResponse<List<String>> versions(Request request) {
+        return conditional(request, "/versions", () -> snapshot().versions());
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Operation(summary = "List available languages")
     @Path("/languages")
-    @CacheResult(cacheName = REFERENCE_CACHE, keyGenerator = MethodNameCacheKeyGenerator.class)
-    public Language[] languages() {
-        return Language.values();
+    public RestResponse<Language[]> languages(Request request) {
+        return conditional(request, "/languages", Language::values);
     }
 
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Operation(summary = "List available categories")
     @Path("/categories")
-    @CacheResult(cacheName = REFERENCE_CACHE, keyGenerator = MethodNameCacheKeyGenerator.class)
-    public List<String> categories() {
-        return listAllValues("categories", Comparator.naturalOrder());
+    public RestResponse<List<String>> categories(
+            @RestQuery @Parameter(description = "Restrict to categories of guides with this version;"
+                    + " all categories are returned if neither version nor language is set.") String version,
+            @RestQuery @Parameter(description = "Restrict to categories of guides with this language;"
+                    + " all categories are returned if neither version nor language is set.") Language language,
+            Request request) {
+        if (version == null && language == null) {
+            return conditional(request, "/categories", () -> snapshot().categories());
+        }
+        var actualVersion = version == null ? QuarkusVersions.LATEST : version;
+        var actualLanguage = language == null ? Language.ENGLISH : language;
+        return conditional(request, "/categories?version=%s&language=%s".formatted(actualVersion, actualLanguage.code),
+                () -> snapshot().values(actualVersion, actualLanguage).categories());
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "List available topics")
+    @Path("/topics")
+    public RestResponse<List<String>> topics(@RestQuery @DefaultValue(QuarkusVersions.LATEST) String version,
+            @RestQuery @DefaultValue("en") Language language, Request request) {
+        return conditional(request, "/topics?version=%s&language=%s".formatted(version, language.code),
+                () -> snapshot().values(version, language).topics());
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "List available extensions")
+    @Path("/extensions")
+    public RestResponse<List<String>> extensions(@RestQuery @DefaultValue(QuarkusVersions.LATEST) String version,
+            @RestQuery @DefaultValue("en") Language language, Request request) {
+        return conditional(request, "/extensions?version=%s&language=%s".formatted(version, language.code),
+                () -> snapshot().values(version, language).extensions());
+    }
+
+    /**
+     * Exposes reference data for a new generation of indexes.
+     * <p>
+     * To be called as soon as the indexes the snapshot was built from go live.
+     */
+    public synchronized void publish(ReferenceSnapshot snapshot) {
+        this.snapshot = snapshot;
     }
 
-    public void invalidateCaches() {
-        cache.invalidateAll().subscribe().asCompletionStage().join();
+    /**
+     * Forgets reference data, so that it gets loaded again from indexes on next access.
+     * <p>
+     * To be called when aliases get pointed to indexes whose snapshot is not at hand, e.g. on rollback.
+     */
+    public synchronized void invalidate() {
+        this.snapshot = null;
     }
 
-    private List<String> listAllValues(String fieldName, Comparator<String> comparator) {
-        var aggKey = AggregationKey.<Map<String, Long>> of("versions");
-        var result = session.search(Guide.class)
+    /**
+     * Reference data only changes when a new index generation gets committed,
+     * so clients can revalidate their copy without us even looking at the data.
+     */
+    private <T> RestResponse<T> conditional(Request request, String canonicalRequest, Supplier<T> value) {
+        var tag = EntityTags.of(indexGeneration.current(), canonicalRequest);
+        RestResponse<T> notModified = EntityTags.notModifiedOrNull(request, tag);
+        if (notModified != null) {
+            return notModified;
+        }
+        return EntityTags.ok(value.get(), tag);
+    }
+
+    private ReferenceSnapshot snapshot() {
+        var result = snapshot;
+        if (result != null) {
+            return result;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = load();
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Loads reference data from indexes that were populated before this application started,
+     * and thus before any snapshot got published.
+     */
+    private ReferenceSnapshot load() {
+        Log.info("Loading reference data from indexes...");
+        var builder = ReferenceSnapshot.builder();
+        var languages = Language.values();
+        try (var scroll = session.search(Guide.class)
+                .select(f -> {
+                    var projections = new ArrayList<ProjectionFinalStep<?>>();
+                    projections.add(f.field("quarkusVersion", String.class));
+                    projections.add(f.field("language", Language.class));
+                    projections.add(f.field("categories", String.class).multi());
+                    projections.add(f.field("extensions_faceting", String.class).multi());
+                    for (Language language : languages) {
+                        projections.add(f.field(language.addSuffix("topics_faceting"), String.class).multi());
+                    }
+                    return f.composite().from(projections.toArray(new ProjectionFinalStep<?>[0])).asList();
+                })
                 .where(f -> f.matchAll())
-                .aggregation(aggKey, f -> f.terms().field(fieldName, String.class))
-                .fetch(0);
-        return result.aggregation(aggKey).keySet().stream().sorted(comparator).toList();
+                .scroll(LOAD_SCROLL_CHUNK_SIZE)) {
+            for (var chunk = scroll.next(); chunk.hasHits(); chunk = scroll.next()) {
+                for (List<?> hit : chunk.hits()) {
+                    add(builder, hit);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    private static void add(ReferenceSnapshot.Builder builder, List<?> hit) {
+        var language = (Language) hit.get(1);
+        if (language == null) {
+            // Quarkiverse guides have no language: they show up for every language.
+            for (Language guideLanguage : Language.values()) {
+                add(builder, hit, guideLanguage);
+            }
+        } else {
+            add(builder, hit, language);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void add(ReferenceSnapshot.Builder builder, List<?> hit, Language language) {
+        builder.add((String) hit.get(0), language, (List<String>) hit.get(2),
+                (List<String>) hit.get(4 + language.ordinal()), (List<String>) hit.get(3));
     }
 }
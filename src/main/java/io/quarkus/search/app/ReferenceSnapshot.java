@@ -0,0 +1,140 @@
+package io.quarkus.search.app;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import io.quarkus.search.app.entity.Guide;
+import io.quarkus.search.app.entity.Language;
+
+/**
+ * An immutable view of reference data (versions, categories, ...) for a given generation of indexes.
+ * <p>
+ * Built while documents get indexed, see {@link Builder},
+ * and exposed by {@link ReferenceService} once the corresponding indexes are live.
+ */
+public final class ReferenceSnapshot {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private final List<String> versions;
+    private final List<String> categories;
+    private final Map<VersionAndLanguage, Values> valuesByVersionAndLanguage;
+
+    private ReferenceSnapshot(List<String> versions, List<String> categories,
+            Map<VersionAndLanguage, Values> valuesByVersionAndLanguage) {
+        this.versions = versions;
+        this.categories = categories;
+        this.valuesByVersionAndLanguage = valuesByVersionAndLanguage;
+    }
+
+    /**
+     * @return All versions, most recent first.
+     */
+    public List<String> versions() {
+        return versions;
+    }
+
+    /**
+     * @return All categories, in alphabetical order.
+     */
+    public List<String> categories() {
+        return categories;
+    }
+
+    /**
+     * @return Values of categories, topics and extensions for guides with the given version and language,
+     *         in alphabetical order.
+     */
+    public Values values(String version, Language language) {
+        return valuesByVersionAndLanguage.getOrDefault(new VersionAndLanguage(version, language), Values.EMPTY);
+    }
+
+    public record Values(List<String> categories, List<String> topics, List<String> extensions) {
+        static final Values EMPTY = new Values(List.of(), List.of(), List.of());
+    }
+
+    private record VersionAndLanguage(String version, Language language) {
+    }
+
+    /**
+     * Collects reference data from guides.
+     * <p>
+     * Not thread-safe.
+     */
+    public static final class Builder {
+        private final Set<String> versions = new TreeSet<>(QuarkusVersions.COMPARATOR.reversed());
+        private final Set<String> categories = new TreeSet<>();
+        private final Map<VersionAndLanguage, MutableValues> valuesByVersionAndLanguage = new HashMap<>();
+
+        private Builder() {
+        }
+
+        public void add(Guide guide) {
+            if (guide.language == null) {
+                // Quarkiverse guides have no language: they show up for every language.
+                for (Language language : Language.values()) {
+                    add(guide, language);
+                }
+            } else {
+                add(guide, guide.language);
+            }
+        }
+
+        private void add(Guide guide, Language language) {
+            add(guide.quarkusVersion, language, guide.categories,
+                    guide.topics.stream().map(topic -> topic.get(language)).toList(),
+                    guide.extensions);
+        }
+
+        /**
+         * @param language The language to record values for; must not be {@code null},
+         *        language-less guides must be recorded for each language.
+         */
+        public void add(String version, Language language, Collection<String> categories,
+                Collection<String> topics, Collection<String> extensions) {
+            if (version == null) {
+                return;
+            }
+            versions.add(version);
+            var values = valuesByVersionAndLanguage.computeIfAbsent(new VersionAndLanguage(version, language),
+                    ignored -> new MutableValues());
+            addAllNonNull(this.categories, categories);
+            addAllNonNull(values.categories, categories);
+            addAllNonNull(values.topics, topics);
+            addAllNonNull(values.extensions, extensions);
+        }
+
+        public ReferenceSnapshot build() {
+            var immutableValues = new HashMap<VersionAndLanguage, Values>();
+            valuesByVersionAndLanguage.forEach((key, values) -> immutableValues.put(key, values.toImmutable()));
+            return new ReferenceSnapshot(List.copyOf(versions), List.copyOf(categories), Map.copyOf(immutableValues));
+        }
+
+        private static void addAllNonNull(Set<String> target, Collection<String> values) {
+            if (values == null) {
+                return;
+            }
+            for (String value : values) {
+                if (value != null) {
+                    target.add(value);
+                }
+            }
+        }
+    }
+
+    private static final class MutableValues {
+        private final Set<String> categories = new TreeSet<>();
+        private final Set<String> topics = new TreeSet<>();
+        private final Set<String> extensions = new TreeSet<>();
+
+        Values toImmutable() {
+            return new Values(List.copyOf(categories), List.copyOf(topics), List.copyOf(extensions));
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package io.quarkus.search.app;
+
+import io.smallrye.config.ConfigMapping;
+import io.smallrye.config.WithDefault;
+
+@ConfigMapping(prefix = "search")
+public interface SearchConfig {
+    /**
+     * @return The number of hits in each page of guide search results.
+     */
+    @WithDefault("50")
+    int pageSize();
+}
@@ -0,0 +1,107 @@
+package io.quarkus.search.app;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.regex.Pattern;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/**
+ * An opaque pointer to the next page of search results.
+ * <p>
+ * Cursors point to a concrete index (not an alias),
+ * so that a rollover committed while a client browses pages doesn't affect results.
+ * They also point to the point-in-time (PIT) the first page was served from,
+ * so that results stay consistent even if the index gets updated in-place.
+ * Once the point-in-time is gone (closed after the last page got served, or expired),
+ * next pages are served from the index directly.
+ *
+ * @param index The name of the concrete index that served the first page.
+ * @param pitId The identifier of the point-in-time, or {@code null} if pages are served from the index directly.
+ * @param searchAfter The sort values of the last hit of the previous page.
+ */
+record SearchCursor(String index, String pitId, JsonArray searchAfter) {
+
+    private static final Gson GSON = new Gson();
+    // Point-in-time identifiers are base64-encoded.
+    private static final Pattern PIT_ID_PATTERN = Pattern.compile("[A-Za-z0-9+/_=-]+");
+
+    /**
+     * @param encoded The cursor, as returned by {@link #encode()}.
+     * @param indexName The Hibernate Search name of the index the cursor must point to.
+     * @return The decoded cursor.
+     * @throws IllegalArgumentException If the cursor is invalid, in particular if it doesn't point to a generation
+     *         of the given index: cursors come from clients, and the index ends up in backend request paths.
+     *         Other parts of the cursor end up in backend requests as well, and are validated so that
+     *         the backend doesn't reject them, which would be reported as a server error.
+     */
+    static SearchCursor decode(String encoded, String indexName) {
+        SearchCursor cursor;
+        try {
+            var json = GSON.fromJson(new String(Base64.getUrlDecoder().decode(encoded), StandardCharsets.UTF_8),
+                    JsonObject.class);
+            JsonElement pitId = json.get("p");
+            cursor = new SearchCursor(json.get("i").getAsString(), pitId == null ? null : pitId.getAsString(),
+                    json.getAsJsonArray("a"));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + e.getMessage(), e);
+        }
+        // See Hibernate Search's default index layout: <name>-<6 digits>.
+        if (!Pattern.matches(Pattern.quote(indexName) + "-\\d{6}", cursor.index())) {
+            throw new IllegalArgumentException("Invalid cursor: unexpected index '%s'".formatted(cursor.index()));
+        }
+        if (cursor.pitId() != null && !PIT_ID_PATTERN.matcher(cursor.pitId()).matches()) {
+            throw new IllegalArgumentException("Invalid cursor: malformed point-in-time");
+        }
+        if (!isValidSearchAfter(cursor.searchAfter())) {
+            throw new IllegalArgumentException("Invalid cursor: malformed sort values");
+        }
+        return cursor;
+    }
+
+    private static boolean isValidSearchAfter(JsonArray searchAfter) {
+        // See the sort in SearchService#search: score, title, URL.
+        return searchAfter != null && searchAfter.size() == 3
+                && searchAfter.get(0).isJsonPrimitive() && searchAfter.get(0).getAsJsonPrimitive().isNumber()
+                && (searchAfter.get(1).isJsonNull()
+                        || searchAfter.get(1).isJsonPrimitive() && searchAfter.get(1).getAsJsonPrimitive().isString())
+                && searchAfter.get(2).isJsonPrimitive() && searchAfter.get(2).getAsJsonPrimitive().isString();
+    }
+
+    /**
+     * @param response The body of a search response.
+     * @param pageSize The maximum number of hits in a page.
+     * @param pitId The identifier of the point-in-time the search was executed against, if any.
+     * @return A cursor pointing to the page after the given response, or {@code null} if there are no more hits.
+     */
+    static SearchCursor next(JsonObject response, int pageSize, String pitId) {
+        JsonArray hits = response.getAsJsonObject("hits").getAsJsonArray("hits");
+        if (hits.size() < pageSize) {
+            return null;
+        }
+        JsonObject lastHit = hits.get(hits.size() - 1).getAsJsonObject();
+        // The point-in-time identifier may change from one request to the next.
+        JsonElement updatedPitId = response.get("pit_id");
+        return new SearchCursor(lastHit.get("_index").getAsString(),
+                updatedPitId == null ? pitId : updatedPitId.getAsString(),
+                lastHit.getAsJsonArray("sort"));
+    }
+
+    SearchCursor withoutPitId() {
+        return new SearchCursor(index, null, searchAfter);
+    }
+
+    String encode() {
+        JsonObject json = new JsonObject();
+        json.addProperty("i", index);
+        if (pitId != null) {
+            json.addProperty("p", pitId);
+        }
+        json.add("a", searchAfter);
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(GSON.toJson(json).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,49 +1,130 @@
 package io.quarkus.search.app;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
-import jakarta.transaction.Transactional;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.UriInfo;
 
+import io.quarkus.search.app.dto.GuideContentSnippets;
+import io.quarkus.search.app.dto.GuideSearchFacets;
 import io.quarkus.search.app.dto.GuideSearchHit;
+import io.quarkus.search.app.dto.GuideSearchQuery;
+import io.quarkus.search.app.dto.GuideSearchSpec;
+import io.quarkus.search.app.dto.GuideSuggestion;
 import io.quarkus.search.app.dto.SearchResult;
 import io.quarkus.search.app.entity.Guide;
 import io.quarkus.search.app.entity.Language;
 import io.quarkus.search.app.entity.QuarkusVersionAndLanguageRoutingBinder;
+import io.quarkus.search.app.indexing.IndexGeneration;
 
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.CompositeCacheKey;
+import io.quarkus.logging.Log;
 import io.quarkus.runtime.LaunchMode;
 
 import org.hibernate.Length;
+import org.hibernate.search.backend.elasticsearch.ElasticsearchBackend;
+import org.hibernate.search.backend.elasticsearch.ElasticsearchExtension;
+import org.hibernate.search.backend.elasticsearch.index.ElasticsearchIndexManager;
+import org.hibernate.search.backend.elasticsearch.metamodel.ElasticsearchIndexDescriptor;
+import org.hibernate.search.engine.search.aggregation.AggregationKey;
 import org.hibernate.search.engine.search.common.BooleanOperator;
 import org.hibernate.search.engine.search.common.ValueConvert;
 import org.hibernate.search.engine.search.predicate.dsl.SimpleQueryFlag;
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
 import org.hibernate.search.mapper.orm.session.SearchSession;
 
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.parameters.Parameter;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
 import org.jboss.resteasy.reactive.RestQuery;
+import org.jboss.resteasy.reactive.RestResponse;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import io.vertx.ext.web.Router;
 
 @ApplicationScoped
 @Path("/")
 public class SearchService {
 
-    private static final int PAGE_SIZE = 50;
+    private static final int MAX_SNIPPETS_GUIDES = 50;
+    private static final int SUGGEST_PAGE_SIZE = 10;
+    private static final int MAX_BATCH_SIZE = 20;
     private static final long TOTAL_HIT_COUNT_THRESHOLD = 100;
+    private static final String GUIDES_SEARCH_PATH = "/guides/search";
+    private static final String SEARCH_CACHE = "search-cache";
+    private static final String SUGGEST_CACHE = "suggest-cache";
+    private static final String POINT_IN_TIME_KEEP_ALIVE = "5m";
+    private static final AggregationKey<Map<String, Long>> CATEGORIES_FACET = AggregationKey.of("categories");
+    private static final AggregationKey<Map<String, Long>> TOPICS_FACET = AggregationKey.of("topics");
+    private static final AggregationKey<Map<String, Long>> EXTENSIONS_FACET = AggregationKey.of("extensions");
     private static final String MAX_FOR_PERF_MESSAGE = "{jakarta.validation.constraints.Max.message} for performance reasons";
 
+    @Inject
+    SearchConfig searchConfig;
+
+    @Inject
+    SearchMapping searchMapping;
+
     @Inject
     SearchSession session;
 
+    @CacheName(SEARCH_CACHE)
+    Cache cache;
+
+    @CacheName(SUGGEST_CACHE)
+    Cache suggestCache;
+
+    @Inject
+    IndexGeneration indexGeneration;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final Gson gson = new Gson();
+
+    // Keys of searches being executed to populate caches, see #cached.
+    private final Set<List<Object>> pendingExecutions = ConcurrentHashMap.newKeySet();
+
     public void init(@Observes Router router) {
         if (LaunchMode.current().isDevOrTest()) {
             return;
@@ -57,34 +138,122 @@ public class SearchService {
     @GET
     @Produces(MediaType.APPLICATION_JSON)
     @Operation(summary = "Search for Guides")
-    @Transactional
-    @Path("/guides/search")
-    public SearchResult<GuideSearchHit> search(@RestQuery @DefaultValue(QuarkusVersions.LATEST) String version,
+    @Path(GUIDES_SEARCH_PATH)
+    @org.jboss.resteasy.reactive.Cache(maxAge = 120)
+    public Uni<RestResponse<SearchResult<GuideSearchHit>>> search(@RestQuery @DefaultValue(QuarkusVersions.LATEST) String version,
             @RestQuery List<String> categories,
             @RestQuery String q,
             @RestQuery @DefaultValue("en") Language language,
             @RestQuery @DefaultValue("highlighted") String highlightCssClass,
             @RestQuery @DefaultValue("0") @Min(0) int page,
             @RestQuery @DefaultValue("1") @Min(0) @Max(value = 10, message = MAX_FOR_PERF_MESSAGE) int contentSnippets,
-            @RestQuery @DefaultValue("100") @Min(0) @Max(value = 200, message = MAX_FOR_PERF_MESSAGE) int contentSnippetsLength) {
-        var result = session.search(Guide.class)
+            @RestQuery @DefaultValue("100") @Min(0) @Max(value = 200, message = MAX_FOR_PERF_MESSAGE) int contentSnippetsLength,
+            @RestQuery @DefaultValue("false") @Parameter(description = "Whether to skip content snippets,"
+                    + " e.g. to retrieve them later through /guides/snippets.") boolean deferContentSnippets,
+            @RestQuery @Parameter(description = "The cursor returned along with the previous page of results;"
+                    + " takes precedence over 'page'.") String cursor,
+            @RestQuery @DefaultValue("false") @Parameter(description = "Whether to return the number of hits"
+                    + " per category, topic and extension.") boolean facets,
+            jakarta.ws.rs.core.Request request, UriInfo uriInfo) {
+        var query = new GuideSearchQuery(version, categories, q, language, highlightCssClass, page,
+                contentSnippets, contentSnippetsLength, deferContentSnippets, facets);
+        if (cursor != null && !cursor.isBlank()) {
+            SearchCursor decodedCursor;
+            try {
+                decodedCursor = SearchCursor.decode(cursor, guideIndexName());
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException(e.getMessage(), e);
+            }
+            // Pages reached through a cursor are specific to a point-in-time: no point caching them.
+            return offEventLoop(() -> searchAfter(query, decodedCursor)).map(RestResponse::ok);
+        }
+        var generation = indexGeneration.current();
+        var canonicalQueryString = query.toQueryString();
+        var tag = EntityTags.of(generation, GUIDES_SEARCH_PATH + "?" + canonicalQueryString);
+        RestResponse<SearchResult<GuideSearchHit>> notModified = EntityTags.notModifiedOrNull(request, tag);
+        if (notModified != null) {
+            // Never reaches the cache, let alone the backend.
+            return Uni.createFrom().item(notModified);
+        }
+        // Points clients and HTTP caches to the canonical URL of this query.
+        var canonicalUri = uriInfo.getRequestUriBuilder().replaceQuery(canonicalQueryString).build();
+        return search(generation, query)
+                .map(result -> RestResponse.ResponseBuilder.ok(result).tag(tag).contentLocation(canonicalUri).build());
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Execute multiple searches for Guides at once, returning results in the same order")
+    @Path("/guides/search/batch")
+    public Uni<List<SearchResult<GuideSearchHit>>> searchBatch(
+            @NotNull @Size(min = 1, max = MAX_BATCH_SIZE) List<@Valid @NotNull GuideSearchSpec> specs) {
+        // Each search goes through the cache, and cache misses are executed concurrently.
+        var generation = indexGeneration.current();
+        return Uni.join().all(specs.stream().map(spec -> search(generation, spec.toQuery())).toList())
+                .andFailFast();
+    }
+
+    private Uni<SearchResult<GuideSearchHit>> search(String generation, GuideSearchQuery query) {
+        return cached(cache, SEARCH_CACHE, generation, query, () -> search(query, null));
+    }
+
+    private SearchResult<GuideSearchHit> searchAfter(GuideSearchQuery query, SearchCursor cursor) {
+        try {
+            return search(query, cursor);
+        } catch (RuntimeException e) {
+            // The index generation may have been deleted since the cursor was returned, e.g. by a rollover.
+            if (!indexExists(cursor.index())) {
+                throw new BadRequestException("Expired cursor: the index it points to no longer exists;"
+                        + " restart from the first page", e);
+            }
+            if (cursor.pitId() == null) {
+                throw e;
+            }
+            // The point-in-time may have expired, or have been closed by another client reaching the last page:
+            // first pages, and thus points-in-time, are shared through the cache.
+            // The index is still there, so we can still serve next pages from it.
+            Log.debugf(e, "Searching after cursor without its point-in-time: %s", e.getMessage());
+            return search(query, cursor.withoutPitId());
+        }
+    }
+
+    private SearchResult<GuideSearchHit> search(GuideSearchQuery query, SearchCursor cursor) {
+        var pageSize = searchConfig.pageSize();
+        var version = query.version();
+        var categories = query.categories();
+        var q = query.q();
+        var language = query.language();
+        var page = query.page();
+        var routingKeys = QuarkusVersionAndLanguageRoutingBinder.searchKeys(version, language);
+        // The first page is served from a point-in-time already, so that next pages are consistent with it.
+        var pitId = cursor == null ? openPointInTime(routingKeys) : cursor.pitId();
+        var index = cursor == null ? null : cursor.index();
+        var searchAfter = cursor == null ? null : cursor.searchAfter();
+        var searchQuery = session.search(Guide.class)
+                .extension(ElasticsearchExtension.get())
                 .select(f -> f.composite().from(
                         f.id(),
                         f.field("type"),
                         f.field("origin"),
                         f.highlight(language.addSuffix("title")),
                         f.highlight(language.addSuffix("summary")),
-                        f.highlight(language.addSuffix("fullContent")).highlighter("highlighter_content"))
+                        // Content snippets are expensive to compute: callers may ask for them separately,
+                        // only for hits they actually display; see #snippets.
+                        query.deferContentSnippets()
+                                ? f.constant(List.of())
+                                : f.highlight(language.addSuffix("fullContent")).highlighter("highlighter_content"))
                         .asList(GuideSearchHit::new))
                 .where((f, root) -> {
                     // Match all documents by default
                     root.add(f.matchAll());
 
-                    if (categories != null && !categories.isEmpty()) {
+                    // With facets, categories are filtered on in a post-filter instead, see below.
+                    if (!categories.isEmpty() && !query.facets()) {
                         root.add(f.terms().field("categories").matchingAny(categories));
                     }
 
-                    if (q != null && !q.isBlank()) {
+                    if (q != null) {
                         root.add(f.bool().must(f.simpleQueryString()
                                 .field(language.addSuffix("title")).boost(10.0f)
                                 .field(language.addSuffix("topics")).boost(10.0f)
@@ -115,17 +284,282 @@ public class SearchService {
                         f -> f.unified().noMatchSize(Length.LONG).fragmentSize(0)
                                 .orderByScore(true)
                                 .numberOfFragments(1)
-                                .tag("<span class=\"" + highlightCssClass + "\">", "</span>")
+                                .tag("<span class=\"" + query.highlightCssClass() + "\">", "</span>")
                                 .boundaryScanner().sentence().end())
                 // * If there's no match in the full content we don't want to return anything.
                 // * Also content is really huge, so we want to only get small parts of the sentences. We are allowing caller to pick the number of sentences and their length:
                 .highlighter("highlighter_content",
-                        f -> f.unified().noMatchSize(0).numberOfFragments(contentSnippets).fragmentSize(contentSnippetsLength))
+                        f -> f.unified().noMatchSize(0).numberOfFragments(query.contentSnippets())
+                                .fragmentSize(query.contentSnippetsLength()))
+                // The URL is there as a tie-breaker, so that cursors never skip nor repeat hits.
+                .sort(f -> f.score().then().field(language.addSuffix("title_sort")).then().field("url_sort"))
+                .routing(routingKeys)
+                .requestTransformer(context -> {
+                    var body = context.body();
+                    if (pitId != null) {
+                        // Searches on a point-in-time must not target any index nor use routing.
+                        context.path("/_search");
+                        context.parametersMap().remove("routing");
+                        body.add("query", filterOnRoutingKeys(body.get("query"), routingKeys));
+                        var pit = new JsonObject();
+                        pit.addProperty("id", pitId);
+                        pit.addProperty("keep_alive", POINT_IN_TIME_KEEP_ALIVE);
+                        body.add("pit", pit);
+                    } else if (index != null) {
+                        // Without a point-in-time, at least stick to the index that served previous pages.
+                        context.path("/" + index + "/_search");
+                    }
+                    if (searchAfter != null) {
+                        body.add("search_after", searchAfter);
+                    }
+                    if (!categories.isEmpty() && query.facets()) {
+                        // Filters hits, but not the documents facets are computed on:
+                        // otherwise the categories facet would only ever list the selected categories.
+                        body.add("post_filter", termsFilter("categories", categories));
+                    }
+                })
+                .totalHitCountThreshold(TOTAL_HIT_COUNT_THRESHOLD + (cursor == null ? page + 1 : 1) * pageSize);
+        if (query.facets()) {
+            // Facets are computed in the same request as hits:
+            // they take into account routing (version/language) and the text query, but not selected categories,
+            // so that users can see which other categories they could select.
+            searchQuery = searchQuery
+                    .aggregation(CATEGORIES_FACET, f -> f.terms().field("categories", String.class))
+                    .aggregation(TOPICS_FACET, f -> f.terms().field(language.addSuffix("topics_faceting"), String.class))
+                    .aggregation(EXTENSIONS_FACET, f -> f.terms().field("extensions_faceting", String.class));
+        }
+        var result = searchQuery.fetch(cursor == null ? page * pageSize : 0, pageSize);
+        var nextCursor = SearchCursor.next(result.responseBody(), pageSize, pitId);
+        if (nextCursor == null && pitId != null) {
+            // Last page: no need to wait for the point-in-time to expire.
+            // Clients still browsing it (see the cache) will carry on without it, see #searchAfter.
+            var updatedPitId = result.responseBody().get("pit_id");
+            closePointInTime(updatedPitId == null ? pitId : updatedPitId.getAsString());
+        }
+        var facets = query.facets()
+                ? new GuideSearchFacets(result.aggregation(CATEGORIES_FACET), result.aggregation(TOPICS_FACET),
+                        result.aggregation(EXTENSIONS_FACET))
+                : null;
+        return new SearchResult<>(result, nextCursor == null ? null : nextCursor.encode(), facets);
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Get content snippets for the given Guides, highlighting matches of the given search terms")
+    @Path("/guides/snippets")
+    public Uni<List<GuideContentSnippets>> snippets(@RestQuery @DefaultValue(QuarkusVersions.LATEST) String version,
+            @RestQuery @Parameter(description = "The URLs of guides, as returned by a search.") @Size(max = MAX_SNIPPETS_GUIDES) List<URI> url,
+            @RestQuery String q,
+            @RestQuery @DefaultValue("en") Language language,
+            @RestQuery @DefaultValue("highlighted") String highlightCssClass,
+            @RestQuery @DefaultValue("1") @Min(0) @Max(value = 10, message = MAX_FOR_PERF_MESSAGE) int contentSnippets,
+            @RestQuery @DefaultValue("100") @Min(0) @Max(value = 200, message = MAX_FOR_PERF_MESSAGE) int contentSnippetsLength) {
+        var query = new GuideSearchQuery(version, null, q, language, highlightCssClass, 0,
+                contentSnippets, contentSnippetsLength, false, false);
+        if (query.q() == null || url == null || url.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+        return offEventLoop(() -> snippets(query, url));
+    }
+
+    private List<GuideContentSnippets> snippets(GuideSearchQuery query, List<URI> urls) {
+        var language = query.language();
+        var hits = session.search(Guide.class)
+                .select(f -> f.composite().from(
+                        f.id(URI.class),
+                        f.highlight(language.addSuffix("fullContent")))
+                        .as(GuideContentSnippets::new))
+                // Only the content query matters here: it's only used to pick the terms to highlight.
+                .where(f -> f.bool()
+                        .must(f.id().matchingAny(urls))
+                        .should(f.simpleQueryString()
+                                .field(language.addSuffix("fullContent"))
+                                .field(language.addSuffix("fullContent_autocomplete"))
+                                .matching(query.q())
+                                .flags(SimpleQueryFlag.AND, SimpleQueryFlag.OR, SimpleQueryFlag.PHRASE)
+                                .defaultOperator(BooleanOperator.AND)))
+                // Same settings as the content highlighter in #search.
+                .highlighter(f -> f.unified().noMatchSize(0)
+                        .numberOfFragments(query.contentSnippets())
+                        .fragmentSize(query.contentSnippetsLength())
+                        .orderByScore(true)
+                        .tag("<span class=\"" + query.highlightCssClass() + "\">", "</span>")
+                        .boundaryScanner().sentence().end())
+                .routing(QuarkusVersionAndLanguageRoutingBinder.searchKeys(query.version(), language))
+                .fetchHits(urls.size());
+        // Return snippets in the order guides were requested.
+        var snippetsByUrl = hits.stream().collect(Collectors.toMap(GuideContentSnippets::url, Function.identity()));
+        return urls.stream().distinct().map(snippetsByUrl::get).filter(Objects::nonNull).toList();
+    }
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Suggest guides whose title or keywords match the given (possibly partial) text, for typeahead")
+    @Path("/guides/suggest")
+    public Uni<List<GuideSuggestion>> suggest(@RestQuery @DefaultValue(QuarkusVersions.LATEST) String version,
+            @RestQuery String q,
+            @RestQuery @DefaultValue("en") Language language) {
+        // Normalize the query so that equivalent queries share the same cache entry
+        var query = new GuideSearchQuery(version, null, q, language, null, 0, 0, 0, false, false);
+        if (query.q() == null) {
+            return Uni.createFrom().item(List.of());
+        }
+        return cached(suggestCache, SUGGEST_CACHE, indexGeneration.current(), query, () -> suggest(query));
+    }
+
+    private List<GuideSuggestion> suggest(GuideSearchQuery query) {
+        var language = query.language();
+        // Only target small fields, and don't highlight anything:
+        // this is called on every keystroke and must be fast.
+        return session.search(Guide.class)
+                .select(f -> f.composite().from(
+                        f.id(URI.class),
+                        f.field("type", String.class),
+                        f.field(language.addSuffix("title"), String.class))
+                        .as(GuideSuggestion::new))
+                .where(f -> f.simpleQueryString()
+                        .field(language.addSuffix("title_autocomplete")).boost(2.0f)
+                        .field(language.addSuffix("keywords_autocomplete"))
+                        .matching(query.q())
+                        .flags(SimpleQueryFlag.AND, SimpleQueryFlag.OR, SimpleQueryFlag.PHRASE)
+                        .defaultOperator(BooleanOperator.AND))
                 .sort(f -> f.score().then().field(language.addSuffix("title_sort")))
-                .routing(QuarkusVersionAndLanguageRoutingBinder.searchKeys(version, language))
-                .totalHitCountThreshold(TOTAL_HIT_COUNT_THRESHOLD + (page + 1) * PAGE_SIZE)
-                .fetch(page * PAGE_SIZE, PAGE_SIZE);
-        return new SearchResult<>(result);
+                .routing(QuarkusVersionAndLanguageRoutingBinder.searchKeys(query.version(), language))
+                .fetchHits(SUGGEST_PAGE_SIZE);
+    }
+
+    /**
+     * Retrieves the result of a search from the cache, executing the search on cache misses.
+     * <p>
+     * Results are tagged with the index generation they were computed from:
+     * as soon as a rollover is committed, older results simply stop being used,
+     * and eventually get evicted.
+     * <p>
+     * The cache holds results of searches still in progress as well,
+     * so concurrent identical searches share a single execution (e.g. right after a rollover).
+     * The ratio of such coalesced searches is exposed through metrics:
+     * see {@code search.requests}, {@code search.executions} and {@code search.coalesced}.
+     * Whether a request triggers an execution is only known to the cache, so it's tracked from the value loader:
+     * requests that find the key of an execution still in progress, and whose loader doesn't run, were coalesced;
+     * requests served from a completed execution are plain cache hits, see cache metrics.
+     */
+    private <T> Uni<T> cached(Cache cache, String cacheName, String generation, GuideSearchQuery query,
+            Supplier<T> search) {
+        var key = new CompositeCacheKey(generation, query);
+        // Keys are only unique within a given cache.
+        List<Object> pendingKey = List.of(cacheName, key);
+        return Uni.createFrom().deferred(() -> {
+            meterRegistry.counter("search.requests", "cache", cacheName).increment();
+            boolean pending = pendingExecutions.contains(pendingKey);
+            var executed = new AtomicBoolean();
+            return cache.getAsync(key, ignored -> {
+                executed.set(true);
+                meterRegistry.counter("search.executions", "cache", cacheName).increment();
+                pendingExecutions.add(pendingKey);
+                return offEventLoop(search)
+                        .onTermination().invoke(() -> pendingExecutions.remove(pendingKey));
+            })
+                    // The loader, if called, runs before the lookup completes.
+                    .onItemOrFailure().invoke((result, failure) -> {
+                        if (pending && !executed.get()) {
+                            meterRegistry.counter("search.coalesced", "cache", cacheName).increment();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Executes a search on a worker thread.
+     * <p>
+     * Endpoints are non-blocking, so that cache hits are served directly from the event loop;
+     * only cache misses actually need a worker thread, to execute the (blocking) Hibernate Search query.
+     * Searches only involve projections, and thus never load entities:
+     * they don't need a transaction nor a database connection.
+     */
+    private static <T> Uni<T> offEventLoop(Supplier<T> search) {
+        return Uni.createFrom().item(search)
+                .runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+    }
+
+    /**
+     * @return The identifier of a point-in-time opened on the index targeted by the read alias,
+     *         or {@code null} if it could not be opened, e.g. because too many are open already.
+     */
+    private String openPointInTime(List<String> routingKeys) {
+        var index = guideIndex().readName();
+        var request = new Request("POST", "/" + index + "/_search/point_in_time");
+        request.addParameter("keep_alive", POINT_IN_TIME_KEEP_ALIVE);
+        request.addParameter("routing", String.join(",", routingKeys));
+        try {
+            var response = client().performRequest(request);
+            try (var input = response.getEntity().getContent()) {
+                var responseBody = gson.fromJson(new InputStreamReader(input, StandardCharsets.UTF_8), JsonObject.class);
+                return responseBody.get("pit_id").getAsString();
+            }
+        } catch (RuntimeException | IOException e) {
+            // Not critical: pages will be served from the index directly, see SearchCursor.
+            Log.warnf(e, "Failed to open a point-in-time on '%s': %s", index, e.getMessage());
+            return null;
+        }
+    }
+
+    private void closePointInTime(String pitId) {
+        var request = new Request("DELETE", "/_search/point_in_time");
+        var pitIds = new JsonArray();
+        pitIds.add(pitId);
+        var body = new JsonObject();
+        body.add("pit_id", pitIds);
+        request.setEntity(new StringEntity(gson.toJson(body), ContentType.APPLICATION_JSON));
+        try {
+            client().performRequest(request);
+        } catch (RuntimeException | IOException e) {
+            // Not critical: the point-in-time will expire eventually.
+            Log.warnf(e, "Failed to close point-in-time: %s", e.getMessage());
+        }
+    }
+
+    private boolean indexExists(String index) {
+        try {
+            // HEAD requests don't fail on 404.
+            return client().performRequest(new Request("HEAD", "/" + index))
+                    .getStatusLine().getStatusCode() == 200;
+        } catch (RuntimeException | IOException e) {
+            // Can't tell: assume it does, so that the original failure gets reported.
+            return true;
+        }
+    }
+
+    private ElasticsearchIndexDescriptor guideIndex() {
+        return searchMapping.indexedEntity(Guide.class).indexManager().unwrap(ElasticsearchIndexManager.class)
+                .descriptor();
+    }
+
+    private String guideIndexName() {
+        // Concrete index names are normalized to lowercase, see Hibernate Search's default index layout.
+        return guideIndex().hibernateSearchName().toLowerCase(Locale.ROOT);
+    }
+
+    private static JsonObject filterOnRoutingKeys(JsonElement query, List<String> routingKeys) {
+        var bool = new JsonObject();
+        bool.add("must", query);
+        bool.add("filter", termsFilter("_routing", routingKeys));
+        var result = new JsonObject();
+        result.add("bool", bool);
+        return result;
+    }
+
+    private static JsonObject termsFilter(String field, List<String> values) {
+        var array = new JsonArray();
+        values.forEach(array::add);
+        var terms = new JsonObject();
+        terms.add(field, array);
+        var result = new JsonObject();
+        result.add("terms", terms);
+        return result;
+    }
+
+    private RestClient client() {
+        return searchMapping.backend().unwrap(ElasticsearchBackend.class).client(RestClient.class);
     }
 
 }
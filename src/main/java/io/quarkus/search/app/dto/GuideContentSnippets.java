@@ -0,0 +1,13 @@
+package io.quarkus.search.app.dto;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+
+public record GuideContentSnippets(URI url, Set<String> content) {
+
+    public GuideContentSnippets(URI url, List<String> fullContent) {
+        this(url, GuideSearchHit.wrap(fullContent));
+    }
+
+}
@@ -0,0 +1,12 @@
+package io.quarkus.search.app.dto;
+
+import java.util.Map;
+
+/**
+ * The number of hits per value of a few fields, for the search that returned these facets.
+ * <p>
+ * Maps are ordered by descending count.
+ */
+public record GuideSearchFacets(Map<String, Long> categories, Map<String, Long> topics,
+        Map<String, Long> extensions) {
+}
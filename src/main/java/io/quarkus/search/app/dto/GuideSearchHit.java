@@ -27,7 +27,7 @@ public record GuideSearchHit(URI url, String type, String origin, String title,
         return strings.isEmpty() ? "" : strings.get(0);
     }
 
-    private static Set<String> wrap(List<String> strings) {
+    static Set<String> wrap(List<String> strings) {
         Set<String> set = new LinkedHashSet<>();
         for (String string : strings) {
             set.add("…%s…".formatted(string));
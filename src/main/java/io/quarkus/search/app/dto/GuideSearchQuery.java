@@ -0,0 +1,66 @@
+package io.quarkus.search.app.dto;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import io.quarkus.search.app.QuarkusVersions;
+import io.quarkus.search.app.entity.Language;
+
+/**
+ * The parameters of a guide search, in canonical form:
+ * two queries that are bound to return the same results are equal.
+ */
+public record GuideSearchQuery(String version, List<String> categories, String q, Language language,
+        String highlightCssClass, int page, int contentSnippets, int contentSnippetsLength, boolean deferContentSnippets,
+        boolean facets) {
+
+    /**
+     * Default values of parameters; must be consistent with defaults of query parameters in SearchService.
+     */
+    public static final GuideSearchQuery DEFAULTS = new GuideSearchQuery(QuarkusVersions.LATEST, null, null,
+            Language.ENGLISH, "highlighted", 0, 1, 100, false, false);
+
+    public GuideSearchQuery {
+        categories = categories == null ? List.of() : categories.stream().distinct().sorted().toList();
+        // Analyzers lowercase text anyway, and leading/trailing spaces are meaningless.
+        q = q == null || q.isBlank() ? null : q.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return A canonical query string for this query:
+     *         parameters in a fixed order, categories sorted, and parameters set to their default value omitted,
+     *         so that HTTP caches see equivalent queries as the same URL.
+     *         Must be consistent with {@code canonicalQueryString} in the web client ({@code qs-form.ts}).
+     */
+    public String toQueryString() {
+        var joiner = new StringJoiner("&");
+        addIfNotDefault(joiner, "version", version, DEFAULTS.version);
+        for (String category : categories) {
+            add(joiner, "categories", category);
+        }
+        addIfNotDefault(joiner, "q", q, DEFAULTS.q);
+        addIfNotDefault(joiner, "language", language.code, DEFAULTS.language.code);
+        addIfNotDefault(joiner, "highlightCssClass", highlightCssClass, DEFAULTS.highlightCssClass);
+        addIfNotDefault(joiner, "page", page, DEFAULTS.page);
+        addIfNotDefault(joiner, "contentSnippets", contentSnippets, DEFAULTS.contentSnippets);
+        addIfNotDefault(joiner, "contentSnippetsLength", contentSnippetsLength, DEFAULTS.contentSnippetsLength);
+        addIfNotDefault(joiner, "deferContentSnippets", deferContentSnippets, DEFAULTS.deferContentSnippets);
+        addIfNotDefault(joiner, "facets", facets, DEFAULTS.facets);
+        return joiner.toString();
+    }
+
+    private static void addIfNotDefault(StringJoiner joiner, String name, Object value, Object defaultValue) {
+        if (value != null && !Objects.equals(value, defaultValue)) {
+            add(joiner, name, String.valueOf(value));
+        }
+    }
+
+    private static void add(StringJoiner joiner, String name, String value) {
+        joiner.add(name + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,34 @@
+package io.quarkus.search.app.dto;
+
+import java.util.List;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+
+import io.quarkus.search.app.entity.Language;
+
+/**
+ * One search in a batch of searches,
+ * accepting the same parameters as a single search, with the same defaults.
+ */
+public record GuideSearchSpec(String version, List<String> categories, String q, Language language,
+        String highlightCssClass,
+        @Min(0) Integer page,
+        @Min(0) @Max(10) Integer contentSnippets,
+        @Min(0) @Max(200) Integer contentSnippetsLength,
+        Boolean deferContentSnippets,
+        Boolean facets) {
+
+    public GuideSearchQuery toQuery() {
+        var defaults = GuideSearchQuery.DEFAULTS;
+        return new GuideSearchQuery(version == null ? defaults.version() : version, categories, q,
+                language == null ? defaults.language() : language,
+                highlightCssClass == null ? defaults.highlightCssClass() : highlightCssClass,
+                page == null ? defaults.page() : page,
+                contentSnippets == null ? defaults.contentSnippets() : contentSnippets,
+                contentSnippetsLength == null ? defaults.contentSnippetsLength() : contentSnippetsLength,
+                deferContentSnippets == null ? defaults.deferContentSnippets() : deferContentSnippets,
+                facets == null ? defaults.facets() : facets);
+    }
+
+}
@@ -0,0 +1,6 @@
+package io.quarkus.search.app.dto;
+
+import java.net.URI;
+
+public record GuideSuggestion(URI url, String type, String title) {
+}
@@ -2,11 +2,20 @@ package io.quarkus.search.app.dto;
 
 import java.util.List;
 
-public record SearchResult<T>(Total total, List<T> hits) {
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+public record SearchResult<T>(Total total, List<T> hits,
+        @JsonInclude(JsonInclude.Include.NON_NULL) String cursor,
+        @JsonInclude(JsonInclude.Include.NON_NULL) GuideSearchFacets facets) {
     public SearchResult(org.hibernate.search.engine.search.query.SearchResult<T> result) {
+        this(result, null, null);
+    }
+
+    public SearchResult(org.hibernate.search.engine.search.query.SearchResult<T> result, String cursor,
+            GuideSearchFacets facets) {
         this(new Total(result.total().isHitCountExact() ? result.total().hitCount() : null,
                 result.total().hitCountLowerBound()),
-                result.hits());
+                result.hits(), cursor, facets);
     }
 
     public record Total(Long exact, Long lowerBound) {
@@ -39,6 +39,7 @@ import org.hibernate.search.mapper.pojo.mapping.definition.annotation.KeywordFie
 public class Guide {
     @Id
     @JavaType(URIType.class)
+    @KeywordField(name = "url_sort", searchable = Searchable.NO, sortable = Sortable.YES)
     public URI url;
 
     @Enumerated(EnumType.STRING)
@@ -87,6 +88,13 @@ public class Guide {
     @KeywordField(name = "extensions_faceting", searchable = Searchable.YES, projectable = Projectable.YES, aggregable = Aggregable.YES)
     public Set<String> extensions = Set.of();
 
+    /**
+     * A hash of everything that gets indexed for this guide (metadata and content),
+     * allowing to detect guides that did not change since they were last indexed.
+     */
+    @KeywordField(searchable = Searchable.NO, projectable = Projectable.YES)
+    public String contentHash;
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -53,7 +53,6 @@ public class I18nData<T> {
         };
     }
 
-    // For testing
     public Map<Language, T> asMap() {
         var result = new LinkedHashMap<Language, T>();
         for (var language : Language.values()) {
@@ -9,7 +9,7 @@ import org.hibernate.search.mapper.pojo.bridge.runtime.RoutingBridgeRouteContext
 import org.hibernate.search.mapper.pojo.route.DocumentRoutes;
 
 public class QuarkusVersionAndLanguageRoutingBinder implements RoutingBinder {
-    private static String key(String version, Language language) {
+    public static String key(String version, Language language) {
         if (language == null) {
             return version;
         }
@@ -1,6 +1,8 @@
 package io.quarkus.search.app.fetching;
 
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.Optional;
 import java.util.OptionalInt;
 
 import io.smallrye.config.ConfigMapping;
@@ -12,4 +14,30 @@ public interface FetchingConfig {
 
     @WithDefault("30s")
     Duration timeout();
+
+    /**
+     * @return A directory where git clones are kept across restarts, e.g. a persistent volume,
+     *         so that they only need to be updated through an incremental fetch;
+     *         if not set, clones happen in temporary directories, deleted on shutdown.
+     */
+    Optional<Path> cacheDirectory();
+
+    /**
+     * Content of Quarkiverse guides is not in git: it gets downloaded from their URLs, in the background.
+     */
+    Prefetch prefetch();
+
+    interface Prefetch {
+        /**
+         * @return The maximum number of concurrent downloads.
+         */
+        @WithDefault("8")
+        int parallelism();
+
+        /**
+         * @return The timeout for each download.
+         */
+        @WithDefault("30s")
+        Duration timeout();
+    }
 }
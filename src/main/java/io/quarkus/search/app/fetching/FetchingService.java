@@ -4,6 +4,7 @@ import static io.quarkus.search.app.util.FileUtils.unzip;
 
 import java.io.IOException;
 import java.net.URI;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -18,11 +19,13 @@ import jakarta.inject.Inject;
 
 import io.quarkus.search.app.entity.Language;
 import io.quarkus.search.app.indexing.FailureCollector;
+import io.quarkus.search.app.quarkusio.GuideSlice;
 import io.quarkus.search.app.quarkusio.QuarkusIO;
 import io.quarkus.search.app.quarkusio.QuarkusIOConfig;
 import io.quarkus.search.app.util.CloseableDirectory;
 import io.quarkus.search.app.util.GitCloneDirectory;
 import io.quarkus.search.app.util.SimpleExecutor;
+import io.quarkus.search.app.util.UrlPrefetcher;
 
 import io.quarkus.logging.Log;
 import io.quarkus.runtime.LaunchMode;
@@ -30,6 +33,8 @@ import io.quarkus.runtime.LaunchMode;
 import org.hibernate.search.util.common.impl.Closer;
 import org.hibernate.search.util.common.impl.SuppressingCloser;
 
+import org.apache.commons.io.file.PathUtils;
+
 import io.vertx.core.impl.ConcurrentHashSet;
 
 @ApplicationScoped
@@ -45,12 +50,25 @@ public class FetchingService {
     private final Set<CloseableDirectory> tempDirectories = new ConcurrentHashSet<>();
 
     public QuarkusIO fetchQuarkusIo(FailureCollector failureCollector) {
+        return fetchQuarkusIo(failureCollector, GuideSlice.ALL);
+    }
+
+    /**
+     * @param failureCollector The failure collector.
+     * @param slice The guides that will be retrieved from the result; localized sites they don't need are not fetched.
+     * @return The fetched quarkus.io sites.
+     */
+    public QuarkusIO fetchQuarkusIo(FailureCollector failureCollector, GuideSlice slice) {
         CompletableFuture<GitCloneDirectory> main = null;
         Map<Language, CompletableFuture<GitCloneDirectory>> localized = new LinkedHashMap<>();
+        UrlPrefetcher quarkiverseGuidePrefetcher = null;
         try (SimpleExecutor executor = new SimpleExecutor(fetchingConfig.parallelism())) {
             main = executor.submit(() -> fetchQuarkusIoSite("quarkus.io", quarkusIOConfig.gitUri(), QuarkusIO.MAIN_BRANCHES));
             for (Map.Entry<Language, QuarkusIOConfig.SiteConfig> entry : sortMap(quarkusIOConfig.localized()).entrySet()) {
                 var language = entry.getKey();
+                if (!slice.requiresSite(language)) {
+                    continue;
+                }
                 var config = entry.getValue();
                 localized.put(language,
                         executor.submit(() -> fetchQuarkusIoSite(language.code + ".quarkus.io", config.gitUri(),
@@ -59,14 +77,17 @@ public class FetchingService {
             executor.waitForSuccessOrThrow(fetchingConfig.timeout());
             // If we get here, all tasks succeeded.
             GitCloneDirectory mainRepository = main.join();
+            quarkiverseGuidePrefetcher = quarkiverseGuidePrefetcher(failureCollector);
             return new QuarkusIO(quarkusIOConfig, mainRepository,
                     localized.entrySet().stream()
                             .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().join().root(mainRepository))),
+                    quarkiverseGuidePrefetcher,
                     failureCollector);
         } catch (RuntimeException | IOException e) {
             new SuppressingCloser(e)
                     .push(main, CompletableFuture::join)
-                    .pushAll(localized.values(), CompletableFuture::join);
+                    .pushAll(localized.values(), CompletableFuture::join)
+                    .push(quarkiverseGuidePrefetcher);
             throw new IllegalStateException("Failed to fetch quarkus.io: " + e.getMessage(), e);
         }
     }
@@ -102,9 +123,14 @@ public class FetchingService {
                 // That's fine, because prod will always use remote (http/git) git URIs anyway,
                 // never local ones (file).
                 // We may skip it in dev mode though.
-                tempDir = CloseableDirectory.temp(siteName);
-                tempDirectories.add(tempDir);
-                cloneDir = GitCloneDirectory.clone(gitUri, tempDir.path(), branches);
+                var cacheDirectory = fetchingConfig.cacheDirectory();
+                if (cacheDirectory.isPresent()) {
+                    cloneDir = openCachedOrClone(siteName, gitUri, branches, cacheDirectory.get().resolve(siteName));
+                } else {
+                    tempDir = CloseableDirectory.temp(siteName);
+                    tempDirectories.add(tempDir);
+                    cloneDir = GitCloneDirectory.clone(gitUri, tempDir.path(), branches);
+                }
             }
 
             detailsCache.put(gitUri, cloneDir.details());
@@ -116,6 +142,56 @@ public class FetchingService {
         }
     }
 
+    private UrlPrefetcher quarkiverseGuidePrefetcher(FailureCollector failureCollector) throws IOException {
+        var cacheDirectory = fetchingConfig.cacheDirectory();
+        CloseableDirectory directory;
+        if (cacheDirectory.isPresent()) {
+            // Content gets revalidated and reused on the next run, possibly after a restart.
+            var path = cacheDirectory.get().resolve("quarkiverse-guides");
+            Files.createDirectories(path);
+            directory = CloseableDirectory.of(path);
+        } else {
+            directory = CloseableDirectory.temp("quarkiverse-guides-");
+        }
+        var prefetch = fetchingConfig.prefetch();
+        return new UrlPrefetcher(directory, prefetch.parallelism(), prefetch.timeout(), failureCollector);
+    }
+
+    /**
+     * Reuses a clone left by a previous run, e.g. before a restart, updating it through an incremental fetch;
+     * falls back to cloning again if that clone is missing, points to another remote, or is corrupted.
+     */
+    private static GitCloneDirectory openCachedOrClone(String siteName, URI gitUri, GitCloneDirectory.Branches branches,
+            Path directory) throws IOException {
+        if (Files.isDirectory(directory.resolve(".git"))) {
+            GitCloneDirectory cloneDir = null;
+            try {
+                cloneDir = GitCloneDirectory.open(directory, branches);
+                var remoteUri = cloneDir.remoteUri().orElse(null);
+                if (!gitUri.toString().equals(remoteUri)) {
+                    throw new IllegalStateException("Repository fetches from '%s' instead of '%s'".formatted(remoteUri, gitUri));
+                }
+                cloneDir.verifyIntegrity();
+            } catch (RuntimeException e) {
+                new SuppressingCloser(e).push(cloneDir);
+                Log.warnf(e, "Unable to reuse the clone of %s in '%s', cloning again: %s", siteName, directory,
+                        e.getMessage());
+                cloneDir = null;
+            }
+            if (cloneDir != null) {
+                Log.infof("Reusing the clone of %s in '%s'.", siteName, directory);
+                // Outside of the try/catch above: failing to fetch (e.g. network issues) is no reason to clone again.
+                cloneDir.update();
+                return cloneDir;
+            }
+        }
+        if (Files.exists(directory)) {
+            PathUtils.deleteDirectory(directory);
+        }
+        Files.createDirectories(directory);
+        return GitCloneDirectory.clone(gitUri, directory, branches);
+    }
+
     private Map<Language, QuarkusIOConfig.SiteConfig> sortMap(Map<String, QuarkusIOConfig.SiteConfig> localized) {
         Map<Language, QuarkusIOConfig.SiteConfig> map = new LinkedHashMap<>();
         for (String lang : localized.keySet().stream().sorted().toList()) {
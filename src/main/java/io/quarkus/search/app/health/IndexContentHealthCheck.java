@@ -1,8 +1,8 @@
 package io.quarkus.search.app.health;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.control.ActivateRequestContext;
 import jakarta.inject.Inject;
-import jakarta.transaction.Transactional;
 
 import org.hibernate.search.mapper.orm.session.SearchSession;
 
@@ -23,8 +23,9 @@ public class IndexContentHealthCheck implements HealthCheck {
     @Inject
     SearchSession session;
 
+    // Searches don't need a transaction, see SearchService#offEventLoop; just a session.
     @Override
-    @Transactional
+    @ActivateRequestContext
     public HealthCheckResponse call() {
         long totalHitCount;
         try {
@@ -0,0 +1,65 @@
+package io.quarkus.search.app.hibernate;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input provider whose text was already extracted,
+ * so that {@link InputProviderHtmlBodyTextBridge} doesn't need to parse the content again.
+ * <p>
+ * Only the text is held in memory: the (much larger) HTML content is released as soon as text is extracted,
+ * and read again from its source if ever needed.
+ */
+public class ExtractedTextInputProvider implements InputProvider {
+    /**
+     * @param provider The provider to extract text from, generally holding content in memory.
+     * @param source The provider to read content from if ever needed again, generally not holding content in memory.
+     * @return A provider holding the extracted text, but not the content of {@code provider}.
+     */
+    public static ExtractedTextInputProvider extract(InputProvider provider, InputProvider source) {
+        String text = InputProviderHtmlBodyTextBridge.extractText(provider);
+        try {
+            return new ExtractedTextInputProvider(source, text, provider.size(), provider.contentId());
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to identify '" + provider + "' for indexing: " + e.getMessage(), e);
+        }
+    }
+
+    private final InputProvider source;
+    private final String text;
+    private final long size;
+    private final String contentId;
+
+    private ExtractedTextInputProvider(InputProvider source, String text, long size, String contentId) {
+        this.source = source;
+        this.text = text;
+        this.size = size;
+        this.contentId = contentId;
+    }
+
+    public String text() {
+        return text;
+    }
+
+    @Override
+    public InputStream open() throws IOException {
+        return source.open();
+    }
+
+    @Override
+    public String contentId() {
+        return contentId;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return "ExtractedTextInputProvider{" +
+                "source=" + source +
+                '}';
+    }
+}
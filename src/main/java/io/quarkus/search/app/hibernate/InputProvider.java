@@ -7,4 +7,16 @@ public interface InputProvider {
 
     InputStream open() throws IOException;
 
+    /**
+     * @return An identifier of the content, which changes whenever the content changes,
+     *         e.g. a git blob id.
+     */
+    String contentId() throws IOException;
+
+    /**
+     * @return The size of the content in bytes, ideally without reading the content,
+     *         e.g. a git blob size.
+     */
+    long size() throws IOException;
+
 }
@@ -16,6 +16,14 @@ import org.jsoup.nodes.Element;
 public class InputProviderHtmlBodyTextBridge implements ValueBridge<InputProvider, String> {
     @Override
     public String toIndexedValue(InputProvider provider, ValueBridgeToIndexedValueContext context) {
+        if (provider instanceof ExtractedTextInputProvider extracted) {
+            // Text was already extracted in an earlier stage of indexing.
+            return extracted.text();
+        }
+        return extractText(provider);
+    }
+
+    public static String extractText(InputProvider provider) {
         try (var in = provider.open()) {
             Element body = Jsoup.parse(in, StandardCharsets.UTF_8.name(), "/").body();
             // Content div has two grid columns: actual content and TOC. There's not much use of the TOC, we want the content only:
@@ -0,0 +1,116 @@
+package io.quarkus.search.app.indexing;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongUnaryOperator;
+
+import io.quarkus.logging.Log;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * The target size of indexing batches, in bytes of extracted content,
+ * adapting to how the search backend copes with the load:
+ * additive increase while submission latency stays below target,
+ * multiplicative decrease when latency exceeds the target or the backend rejects requests.
+ * <p>
+ * Thread-safe.
+ */
+final class AdaptiveBatchSize implements AutoCloseable {
+
+    private static final String TARGET_METRIC = "indexing.batch.target";
+    private static final String SIZE_METRIC = "indexing.batch.size";
+    private static final String DOCUMENTS_METRIC = "indexing.batch.documents";
+    private static final String REJECTIONS_METRIC = "indexing.batch.rejections";
+
+    private final MeterRegistry meterRegistry;
+    private final long minBytes;
+    private final long maxBytes;
+    private final Duration targetLatency;
+    private final AtomicLong targetBytes;
+    private final AtomicLong lowestTargetBytes;
+    private final AtomicLong highestTargetBytes;
+
+    private final Gauge targetGauge;
+    private final DistributionSummary sizes;
+    private final DistributionSummary documents;
+    private final Counter rejections;
+
+    AdaptiveBatchSize(IndexingConfig.Batching config, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.minBytes = config.minSize().asLongValue();
+        this.maxBytes = Math.max(minBytes, config.maxSize().asLongValue());
+        this.targetLatency = config.targetLatency();
+        long initialBytes = clamp(config.initialSize().asLongValue());
+        this.targetBytes = new AtomicLong(initialBytes);
+        this.lowestTargetBytes = new AtomicLong(initialBytes);
+        this.highestTargetBytes = new AtomicLong(initialBytes);
+        this.targetGauge = Gauge.builder(TARGET_METRIC, targetBytes, AtomicLong::get)
+                .description("Current target size of indexing batches")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.sizes = DistributionSummary.builder(SIZE_METRIC)
+                .description("Size of submitted indexing batches")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.documents = DistributionSummary.builder(DOCUMENTS_METRIC)
+                .description("Number of documents in submitted indexing batches")
+                .register(meterRegistry);
+        this.rejections = Counter.builder(REJECTIONS_METRIC)
+                .description("Indexing batches rejected by the search backend as overloaded")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void close() {
+        // The gauge references this instance's state: a later instance will register its own.
+        meterRegistry.remove(targetGauge);
+    }
+
+    long targetBytes() {
+        return targetBytes.get();
+    }
+
+    void onSuccess(long batchBytes, int documentCount, Duration latency) {
+        sizes.record(batchBytes);
+        documents.record(documentCount);
+        if (latency.compareTo(targetLatency) > 0) {
+            update("latency %s above target".formatted(latency), current -> current - current / 4);
+        } else if (batchBytes >= targetBytes.get()) {
+            // Only grow if the batch was actually full: small batches say nothing about larger ones.
+            update(null, current -> current + minBytes);
+        }
+    }
+
+    void onRejection() {
+        rejections.increment();
+        update("rejected by the search backend", current -> current / 2);
+    }
+
+    /**
+     * @return A summary of target sizes since this instance was created, for logging.
+     */
+    String summary() {
+        return "target batch size %d bytes (ranged from %d to %d), %d rejections".formatted(
+                targetBytes.get(), lowestTargetBytes.get(), highestTargetBytes.get(), (long) rejections.count());
+    }
+
+    private void update(String shrinkReason, LongUnaryOperator function) {
+        long previous = targetBytes.get();
+        long updated = targetBytes.updateAndGet(current -> clamp(function.applyAsLong(current)));
+        lowestTargetBytes.accumulateAndGet(updated, Math::min);
+        highestTargetBytes.accumulateAndGet(updated, Math::max);
+        if (shrinkReason != null && updated != previous) {
+            Log.infof("Shrinking indexing batches to %d bytes: %s", updated, shrinkReason);
+        } else if (updated != previous) {
+            Log.debugf("Growing indexing batches to %d bytes", updated);
+        }
+    }
+
+    private long clamp(long bytes) {
+        return Math.max(minBytes, Math.min(maxBytes, bytes));
+    }
+}
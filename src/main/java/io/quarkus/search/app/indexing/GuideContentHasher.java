@@ -0,0 +1,119 @@
+package io.quarkus.search.app.indexing;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import io.quarkus.search.app.entity.Guide;
+import io.quarkus.search.app.entity.I18nData;
+import io.quarkus.search.app.entity.Language;
+import io.quarkus.search.app.hibernate.InputProvider;
+import io.quarkus.search.app.util.CloseableDirectory;
+
+import io.quarkus.logging.Log;
+
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
+
+/**
+ * Computes hashes of guides, used to detect guides that don't need to be sent to the search backend again
+ * because an identical document exists in the previous index.
+ * <p>
+ * Hashes cover everything that gets indexed, but are cheap to compute:
+ * they rely on content ids for HTML content rather than on the (extracted) text.
+ * They also cover the indexing code, so that a change to the mapping, analyzers or bridges
+ * leads to every guide being considered as changed.
+ */
+final class GuideContentHasher {
+
+    /**
+     * Must be incremented whenever indexing code changes in a way that affects indexed documents
+     * without affecting the expected schema, e.g. a change to text extraction in bridges.
+     */
+    private static final int INDEXING_CODE_VERSION = 1;
+
+    /**
+     * @return A hasher for guides indexed through the given mapping.
+     */
+    static GuideContentHasher create(SearchMapping searchMapping) throws IOException {
+        var digest = sha256();
+        digest.update(("indexing-code-version=" + INDEXING_CODE_VERSION + '\u0000').getBytes(StandardCharsets.UTF_8));
+        // The expected schema covers the mapping of fields, as well as analysis settings.
+        try (var directory = CloseableDirectory.temp("expected-schema-")) {
+            searchMapping.scope(Object.class).schemaManager().exportExpectedSchema(directory.path());
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(directory.path())) {
+                files = walk.filter(Files::isRegularFile).sorted().toList();
+            }
+            for (Path file : files) {
+                digest.update(directory.path().relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+                digest.update(Files.readAllBytes(file));
+                digest.update((byte) 0);
+            }
+        }
+        return new GuideContentHasher(hex(digest.digest()));
+    }
+
+    private final String indexingFingerprint;
+
+    private GuideContentHasher(String indexingFingerprint) {
+        this.indexingFingerprint = indexingFingerprint;
+    }
+
+    /**
+     * @return The hash of the given guide, or {@code null} if its content could not be identified,
+     *         in which case the guide must be considered as changed.
+     */
+    String hash(Guide guide) {
+        var data = new StringBuilder(indexingFingerprint).append('\u0000');
+        for (Object value : Arrays.asList(guide.url, guide.language, guide.quarkusVersion, guide.type, guide.origin,
+                guide.title.asMap(), guide.summary.asMap(), guide.keywords.asMap(),
+                sorted(guide.categories), sorted(guide.topics.stream().map(I18nData::asMap).map(String::valueOf).toList()),
+                sorted(guide.extensions))) {
+            data.append(value).append('\u0000');
+        }
+        for (Map.Entry<Language, InputProvider> entry : guide.htmlFullContentProvider.asMap().entrySet()) {
+            try {
+                data.append(entry.getKey()).append('=').append(entry.getValue().contentId()).append('\u0000');
+            } catch (IOException | RuntimeException e) {
+                Log.debugf(e, "Unable to identify content of %s", entry.getValue());
+                return null;
+            }
+        }
+        return hex(sha256().digest(data.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<String> sorted(Collection<String> values) {
+        return values == null ? List.of()
+                : values.stream().sorted(Comparator.nullsFirst(Comparator.naturalOrder())).toList();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available: " + e.getMessage(), e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        return HexFormat.of().formatHex(bytes);
+    }
+
+    @Override
+    public String toString() {
+        return "GuideContentHasher{" +
+                "indexingFingerprint='" + indexingFingerprint + '\'' +
+                '}';
+    }
+}
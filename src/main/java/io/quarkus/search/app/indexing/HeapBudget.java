@@ -0,0 +1,97 @@
+package io.quarkus.search.app.indexing;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import io.quarkus.runtime.configuration.MemorySize;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Admission control for content held in memory while indexing,
+ * from the moment it gets read to the moment the corresponding batch got submitted.
+ * <p>
+ * Amounts are estimates, based on the size of content before it's even read (e.g. git blob sizes):
+ * actual heap usage also includes e.g. parsed HTML during text extraction,
+ * so the budget should leave some headroom.
+ */
+final class HeapBudget implements AutoCloseable {
+
+    private static final String UTILIZATION_METRIC = "indexing.heap-budget.utilization";
+    // Semaphores count permits with an int: we use one permit per KiB.
+    private static final long BYTES_PER_PERMIT = 1024L;
+    private static final long POLL_INTERVAL_MILLIS = 100L;
+
+    private final MeterRegistry meterRegistry;
+    private final int totalPermits;
+    private final Semaphore semaphore;
+    private final Gauge utilization;
+
+    HeapBudget(MemorySize budget, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.totalPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1L, budget.asLongValue() / BYTES_PER_PERMIT));
+        // Fair, so that guides are admitted in the order they were read.
+        this.semaphore = new Semaphore(totalPermits, true);
+        this.utilization = Gauge.builder(UTILIZATION_METRIC, this, HeapBudget::utilization)
+                .description("Ratio of the indexing heap budget currently held by in-flight content")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void close() {
+        // The gauge references this budget: a later pipeline will register its own.
+        meterRegistry.remove(utilization);
+    }
+
+    /**
+     * Blocks until the given amount fits in the budget.
+     *
+     * @param bytes The (estimated) amount of memory to reserve.
+     * @param whileWaiting An action to run periodically while waiting,
+     *        e.g. to submit a partial batch so that its memory gets released.
+     * @param timeout How long to wait at most.
+     * @return The number of permits to pass to {@link #release(int)} once the memory is no longer used.
+     */
+    int acquire(long bytes, Runnable whileWaiting, Duration timeout) {
+        // A single item larger than the whole budget must still get through, alone.
+        int permits = (int) Math.min(totalPermits, Math.max(1L, (bytes + BYTES_PER_PERMIT - 1) / BYTES_PER_PERMIT));
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            while (!semaphore.tryAcquire(permits, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (System.nanoTime() - deadline > 0) {
+                    throw new IllegalStateException(
+                            "Timed out after %s waiting for %d bytes of indexing heap budget (%s)"
+                                    .formatted(timeout, bytes, summary()));
+                }
+                whileWaiting.run();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for indexing heap budget", e);
+        }
+        return permits;
+    }
+
+    void release(int permits) {
+        if (permits > 0) {
+            semaphore.release(permits);
+        }
+    }
+
+    /**
+     * @return Whether some thread is waiting for memory to get released.
+     */
+    boolean isExhausted() {
+        return semaphore.hasQueuedThreads();
+    }
+
+    double utilization() {
+        return (double) (totalPermits - semaphore.availablePermits()) / totalPermits;
+    }
+
+    String summary() {
+        return "heap budget %d KiB, %.0f%% used".formatted(totalPermits, utilization() * 100);
+    }
+}
@@ -0,0 +1,116 @@
+package io.quarkus.search.app.indexing;
+
+import java.io.IOException;
+import java.util.List;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import io.quarkus.search.app.entity.Guide;
+
+import io.quarkus.logging.Log;
+import io.quarkus.scheduler.Scheduled;
+
+import org.hibernate.search.backend.elasticsearch.ElasticsearchBackend;
+import org.hibernate.search.backend.elasticsearch.index.ElasticsearchIndexManager;
+import org.hibernate.search.backend.elasticsearch.metamodel.ElasticsearchIndexDescriptor;
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+/**
+ * Identifies the content currently exposed by the read aliases.
+ * <p>
+ * The generation is derived from the name of the index behind the read alias,
+ * which changes every time a rollover gets committed (or rolled back),
+ * and from a counter recorded in that index's mapping ({@code _meta}),
+ * which changes every time content gets updated in place (incremental indexing).
+ * It is thus the same on every instance of the application, and across restarts,
+ * so anything derived from index content (caches, entity tags in particular)
+ * can be tagged with the generation it was computed from,
+ * and will naturally stop being used once a new generation is committed.
+ */
+@ApplicationScoped
+public class IndexGeneration {
+
+    // Next to IndexMetadata's own key in the mapping's _meta
+    private static final String META_KEY = "quarkus-search-generation";
+    // Until we could read the generation from the search backend, e.g. before indexes exist.
+    private static final String UNKNOWN = "unknown";
+
+    @Inject
+    SearchMapping searchMapping;
+
+    private volatile String current = UNKNOWN;
+
+    public String current() {
+        return current;
+    }
+
+    /**
+     * Records that content behind the read alias changed, and picks up the resulting generation.
+     */
+    void next() {
+        var gson = new Gson();
+        try {
+            var liveIndex = liveIndex(gson);
+            // _meta is replaced as a whole, so we need to merge it with existing metadata.
+            var meta = Rollover.metas(client(), gson, liveIndex).getOrDefault(liveIndex, new JsonObject());
+            meta.addProperty(META_KEY, counter(meta) + 1);
+            var body = new JsonObject();
+            body.add("_meta", meta);
+            var request = new Request("PUT", "/" + liveIndex + "/_mapping");
+            request.setEntity(new StringEntity(gson.toJson(body), ContentType.APPLICATION_JSON));
+            client().performRequest(request);
+        } catch (RuntimeException | IOException e) {
+            throw new IllegalStateException("Failed to record a new index generation: " + e.getMessage(), e);
+        }
+        refresh();
+    }
+
+    /**
+     * Picks up generations committed by other instances of the application.
+     */
+    @Scheduled(every = "{indexing.generation.refresh-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void refresh() {
+        var gson = new Gson();
+        try {
+            var liveIndex = liveIndex(gson);
+            var meta = Rollover.metas(client(), gson, liveIndex).get(liveIndex);
+            current = liveIndex + "." + counter(meta);
+        } catch (RuntimeException | IOException e) {
+            // Keep serving (and caching) with the generation we know of; we'll try again later.
+            Log.warnf(e, "Failed to read the current index generation: %s", e.getMessage());
+        }
+    }
+
+    private String liveIndex(Gson gson) throws IOException {
+        var index = index();
+        var liveIndexes = Rollover.aliased(client(), gson, List.of(index)).iterator().next().readAliasedIndexes();
+        if (liveIndexes.size() != 1) {
+            throw new IllegalStateException("Read alias '%s' must target exactly one index, but targets %s"
+                    .formatted(index.readName(), liveIndexes));
+        }
+        return liveIndexes.iterator().next();
+    }
+
+    private static long counter(JsonObject meta) {
+        var counter = meta == null ? null : meta.get(META_KEY);
+        return counter == null ? 0L : counter.getAsLong();
+    }
+
+    private ElasticsearchIndexDescriptor index() {
+        return searchMapping.indexedEntity(Guide.class).indexManager()
+                .unwrap(ElasticsearchIndexManager.class).descriptor();
+    }
+
+    private RestClient client() {
+        return searchMapping.backend().unwrap(ElasticsearchBackend.class).client(RestClient.class);
+    }
+}
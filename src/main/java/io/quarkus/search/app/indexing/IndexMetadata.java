@@ -0,0 +1,115 @@
+package io.quarkus.search.app.indexing;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import io.quarkus.search.app.entity.Guide;
+
+import org.hibernate.search.backend.elasticsearch.ElasticsearchBackend;
+import org.hibernate.search.backend.elasticsearch.index.ElasticsearchIndexManager;
+import org.hibernate.search.backend.elasticsearch.metamodel.ElasticsearchIndexDescriptor;
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+/**
+ * Metadata recorded in the mapping ({@code _meta}) of indexes,
+ * describing what their content was built from,
+ * so that the next indexing can only process what changed since then.
+ *
+ * @param fullIndexing When the content was last indexed from scratch, i.e. with a rollover.
+ * @param revisions The revisions content was extracted from, see {@link io.quarkus.search.app.quarkusio.QuarkusIO#revisions()}.
+ */
+record IndexMetadata(Instant fullIndexing, Map<String, String> revisions) {
+
+    private static final String META_KEY = "quarkus-search";
+    private static final String FULL_INDEXING_KEY = "full-indexing";
+    private static final String REVISIONS_KEY = "revisions";
+
+    /**
+     * @param searchMapping The Hibernate Search mapping.
+     * @return The metadata recorded in the index targeted by read aliases,
+     *         or an empty optional if there is none (e.g. indexes were populated by an older version of this application).
+     */
+    static Optional<IndexMetadata> read(SearchMapping searchMapping) {
+        var gson = new Gson();
+        var request = new Request("GET", "/" + index(searchMapping).readName() + "/_mapping");
+        request.addParameter("filter_path", "*.mappings._meta");
+        try {
+            var response = client(searchMapping).performRequest(request);
+            try (var input = response.getEntity().getContent()) {
+                var responseBody = gson.fromJson(new InputStreamReader(input, StandardCharsets.UTF_8), JsonObject.class);
+                if (responseBody == null || responseBody.size() != 1) {
+                    return Optional.empty();
+                }
+                var mappings = responseBody.asMap().values().iterator().next().getAsJsonObject()
+                        .getAsJsonObject("mappings");
+                var meta = mappings == null ? null : mappings.getAsJsonObject("_meta");
+                if (meta == null || !meta.has(META_KEY)) {
+                    return Optional.empty();
+                }
+                var metadata = meta.getAsJsonObject(META_KEY);
+                var revisions = new TreeMap<String, String>();
+                metadata.getAsJsonObject(REVISIONS_KEY).asMap()
+                        .forEach((key, value) -> revisions.put(key, value.getAsString()));
+                return Optional.of(new IndexMetadata(Instant.parse(metadata.get(FULL_INDEXING_KEY).getAsString()),
+                        revisions));
+            }
+        } catch (RuntimeException | IOException e) {
+            throw new IllegalStateException("Failed to read index metadata: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Records this metadata in the write index of write aliases.
+     * <p>
+     * During a rollover, that's the new index only:
+     * the live index must keep describing its own content, in case the rollover gets rolled back.
+     *
+     * @param searchMapping The Hibernate Search mapping.
+     */
+    void write(SearchMapping searchMapping) {
+        var gson = new Gson();
+        var revisionsJson = new JsonObject();
+        revisions.forEach(revisionsJson::addProperty);
+        var metadata = new JsonObject();
+        metadata.addProperty(FULL_INDEXING_KEY, fullIndexing.toString());
+        metadata.add(REVISIONS_KEY, revisionsJson);
+
+        var client = client(searchMapping);
+        try {
+            // During a rollover, the write alias targets the live index as well.
+            var writeIndex = Rollover.writeIndex(client, gson, index(searchMapping));
+            // _meta is replaced as a whole, so we need to merge it with existing metadata, see IndexGeneration.
+            var meta = Rollover.metas(client, gson, writeIndex).getOrDefault(writeIndex, new JsonObject());
+            meta.add(META_KEY, metadata);
+            var body = new JsonObject();
+            body.add("_meta", meta);
+            var request = new Request("PUT", "/" + writeIndex + "/_mapping");
+            request.setEntity(new StringEntity(gson.toJson(body), ContentType.APPLICATION_JSON));
+            client.performRequest(request);
+        } catch (RuntimeException | IOException e) {
+            throw new IllegalStateException("Failed to write index metadata: " + e.getMessage(), e);
+        }
+    }
+
+    private static ElasticsearchIndexDescriptor index(SearchMapping searchMapping) {
+        return searchMapping.indexedEntity(Guide.class).indexManager()
+                .unwrap(ElasticsearchIndexManager.class).descriptor();
+    }
+
+    private static RestClient client(SearchMapping searchMapping) {
+        return searchMapping.backend().unwrap(ElasticsearchBackend.class).client(RestClient.class);
+    }
+}
@@ -4,6 +4,8 @@ import java.time.Duration;
 import java.util.Optional;
 import java.util.OptionalInt;
 
+import io.quarkus.runtime.configuration.MemorySize;
+
 import io.smallrye.config.ConfigMapping;
 import io.smallrye.config.WithDefault;
 
@@ -13,15 +15,55 @@ public interface IndexingConfig {
 
     Scheduled scheduled();
 
+    /**
+     * @return The parallelism of the last stage of indexing, i.e. submitting batches to the search backend.
+     * @see Pipeline
+     */
     OptionalInt parallelism();
 
+    /**
+     * @return The maximum amount of content held in memory by indexing at any given time,
+     *         estimated from the size of HTML content before it's read;
+     *         reading more content blocks until enough of it got submitted to the search backend.
+     * @see HeapBudget
+     */
+    @WithDefault("256M")
+    MemorySize heapBudget();
+
+    Pipeline pipeline();
+
+    /**
+     * @return The maximum number of documents in a batch; batches are generally smaller, see {@link #batching()}.
+     */
     int batchSize();
 
+    Batching batching();
+
+    BulkLoad bulkLoad();
+
+    Retention retention();
+
     @WithDefault("30s")
     Duration timeout();
 
     GitErrorReporting errorReporting();
 
+    Incremental incremental();
+
+    Generation generation();
+
+    enum Mode {
+        /**
+         * Index everything into new indexes, then switch aliases to those new indexes.
+         */
+        FULL,
+        /**
+         * Only update/delete documents affected by changes since the last indexing, in place,
+         * falling back to {@link #FULL} when changes cannot be determined.
+         */
+        INCREMENTAL
+    }
+
     interface OnStartup {
         @WithDefault("always")
         When when();
@@ -38,6 +80,125 @@ public interface IndexingConfig {
 
     interface Scheduled {
         String cron();
+
+        @WithDefault("incremental")
+        Mode mode();
+    }
+
+    /**
+     * Indexing is split into stages, each with its own worker pool and bounded queue, see {@link IndexingPipeline}.
+     */
+    interface Pipeline {
+        /**
+         * @return Configuration of the stage reading HTML content from git (or prefetched files) into memory.
+         */
+        Stage read();
+
+        /**
+         * @return Configuration of the stage extracting text from HTML content.
+         */
+        Stage extract();
+
+        /**
+         * @return The queue size of the stage submitting batches to the search backend,
+         *         whose parallelism is {@link IndexingConfig#parallelism()}.
+         */
+        OptionalInt submitQueueSize();
+
+        interface Stage {
+            /**
+             * @return The number of threads for this stage; defaults to the number of processors.
+             */
+            OptionalInt parallelism();
+
+            /**
+             * @return The number of items waiting for a thread beyond which earlier stages block;
+             *         defaults to twice the parallelism.
+             */
+            OptionalInt queueSize();
+        }
+    }
+
+    /**
+     * Batches are sized by bytes of extracted content, and that size adapts to how the search backend copes:
+     * it grows while submitting is fast, and shrinks when submitting gets slow or the backend rejects requests.
+     */
+    interface Batching {
+        @WithDefault("512K")
+        MemorySize initialSize();
+
+        @WithDefault("64K")
+        MemorySize minSize();
+
+        @WithDefault("8M")
+        MemorySize maxSize();
+
+        /**
+         * @return The submission latency beyond which batches shrink.
+         */
+        @WithDefault("2s")
+        Duration targetLatency();
+
+        /**
+         * @return How many times a batch gets retried after the search backend rejected it as overloaded.
+         */
+        @WithDefault("5")
+        int maxRetries();
+
+        /**
+         * @return How long to wait before the first retry; doubles on each subsequent retry.
+         */
+        @WithDefault("1s")
+        Duration initialBackoff();
+    }
+
+    /**
+     * On full indexing, new indexes can be populated without periodic refreshes and without replicas,
+     * to save resources; serving settings are restored before the new indexes go live.
+     */
+    interface BulkLoad {
+        @WithDefault("true")
+        boolean enabled();
+
+        /**
+         * @return The number of segments to force-merge new indexes to before they go live;
+         *         no force-merge if not set.
+         */
+        OptionalInt maxSegments();
+
+        /**
+         * @return How long to wait, at most, for new indexes to get force-merged,
+         *         then for all their replicas to get assigned, before they go live.
+         */
+        @WithDefault("5m")
+        Duration timeout();
+    }
+
+    interface Retention {
+        /**
+         * @return How many previous generations of indexes to retain (read-only) on full indexing,
+         *         to be able to roll back to them; 0 to delete previous indexes as soon as new ones go live.
+         */
+        @WithDefault("2")
+        int generations();
+    }
+
+    interface Incremental {
+        /**
+         * @return How long after the last full indexing incremental indexing should fall back to full indexing,
+         *         as a safety net against changes that incremental indexing would fail to detect.
+         */
+        @WithDefault("7d")
+        Duration maxAge();
+    }
+
+    interface Generation {
+        /**
+         * @return How often to check whether another instance of the application committed a new index generation.
+         * @see IndexGeneration
+         */
+        @WithDefault("10s")
+        Duration refreshInterval();
     }
 
     interface GitErrorReporting {
@@ -0,0 +1,371 @@
+package io.quarkus.search.app.indexing;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import io.quarkus.search.app.entity.Guide;
+import io.quarkus.search.app.entity.Language;
+import io.quarkus.search.app.hibernate.ExtractedTextInputProvider;
+import io.quarkus.search.app.hibernate.InputProvider;
+import io.quarkus.search.app.util.InMemoryInputProvider;
+import io.quarkus.search.app.util.SimpleExecutor;
+
+import io.quarkus.logging.Log;
+
+import org.hibernate.search.util.common.impl.Closer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Indexes guides through a pipeline of stages,
+ * each with its own worker pool, bounded queue and metrics,
+ * so that the actual bottleneck can be identified and tuned:
+ * <ol>
+ * <li>{@code metadata}: guides are pulled from the source (YAML parsing, translation, Markdown rendering)
+ * by the calling thread;</li>
+ * <li>{@code read}: guides are hashed (see {@link GuideContentHasher}) and skipped if unchanged;
+ * otherwise, HTML content is read from git (or prefetched content) into memory,
+ * provided it fits in the {@link HeapBudget heap budget};</li>
+ * <li>{@code extract}: text is extracted from the HTML content;</li>
+ * <li>{@code submit}: guides are sent to the search backend in batches,
+ * sized by bytes of extracted content, see {@link AdaptiveBatchSize}.</li>
+ * </ol>
+ * A full queue blocks the previous stage, and content only gets released from the heap budget
+ * once submitted, so memory usage stays bounded.
+ * <p>
+ * Progress is reported to the {@link ReindexJob}, and cancellation of that job stops the {@code metadata} stage.
+ */
+final class IndexingPipeline implements AutoCloseable {
+
+    private static final String ITEMS_METRIC = "indexing.pipeline.items";
+    private static final String DURATION_METRIC = "indexing.pipeline.duration";
+    private static final String QUEUE_METRIC = "indexing.pipeline.queue";
+
+    private final MeterRegistry meterRegistry;
+    private final Duration timeout;
+    private final int maxBatchDocuments;
+    private final AdaptiveBatchSize batchSize;
+    private final HeapBudget heapBudget;
+    private final int maxRetries;
+    private final Duration initialBackoff;
+    private final GuideContentHasher hasher;
+    private final Consumer<List<Guide>> batchIndexer;
+    private final ReindexJob job;
+
+    private final Stage metadata;
+    private final Stage read;
+    private final Stage extract;
+    private final Stage submit;
+
+    private final LongAdder indexedCount = new LongAdder();
+    private List<Guide> currentBatch;
+    private long currentBatchBytes;
+    private int currentBatchPermits;
+
+    IndexingPipeline(IndexingConfig config, MeterRegistry meterRegistry, ReindexJob job, GuideContentHasher hasher,
+            Consumer<List<Guide>> batchIndexer) {
+        this.meterRegistry = meterRegistry;
+        this.timeout = config.timeout();
+        this.maxBatchDocuments = config.batchSize();
+        this.batchSize = new AdaptiveBatchSize(config.batching(), meterRegistry);
+        this.heapBudget = new HeapBudget(config.heapBudget(), meterRegistry);
+        this.maxRetries = config.batching().maxRetries();
+        this.initialBackoff = config.batching().initialBackoff();
+        this.hasher = hasher;
+        this.batchIndexer = batchIndexer;
+        this.job = job;
+        this.currentBatch = new ArrayList<>();
+        var pipelineConfig = config.pipeline();
+        this.metadata = new Stage("metadata", null);
+        this.read = new Stage("read", new SimpleExecutor(pipelineConfig.read().parallelism(),
+                pipelineConfig.read().queueSize()));
+        this.extract = new Stage("extract", new SimpleExecutor(pipelineConfig.extract().parallelism(),
+                pipelineConfig.extract().queueSize()));
+        this.submit = new Stage("submit", new SimpleExecutor(config.parallelism(),
+                pipelineConfig.submitQueueSize()));
+    }
+
+    @Override
+    public void close() {
+        try (var closer = new Closer<RuntimeException>()) {
+            closer.pushAll(Stage::close, List.of(metadata, read, extract, submit));
+            closer.push(AdaptiveBatchSize::close, batchSize);
+            closer.push(HeapBudget::close, heapBudget);
+        }
+    }
+
+    /**
+     * Runs all guides through the pipeline, and waits for them to be indexed.
+     *
+     * @param guides The guides to index; only ever consumed from the calling thread.
+     * @return The number of indexed guides.
+     */
+    long indexAll(Iterator<Guide> guides) {
+        return indexAll(guides, guide -> false);
+    }
+
+    /**
+     * Runs all guides through the pipeline, and waits for them to be indexed, except those that didn't change.
+     *
+     * @param guides The guides to index; only ever consumed from the calling thread.
+     * @param unchanged A test applied to each guide once its {@link Guide#contentHash hash} is set;
+     *        guides passing the test are not indexed. Called concurrently.
+     * @return The number of indexed guides, excluding those that didn't change.
+     */
+    long indexAll(Iterator<Guide> guides, Predicate<Guide> unchanged) {
+        long count = 0L;
+        while (true) {
+            // Guides already in the pipeline get abandoned when closing the pipeline.
+            job.checkNotCancelled();
+            long start = System.nanoTime();
+            if (!guides.hasNext()) {
+                break;
+            }
+            Guide guide = guides.next();
+            metadata.record(start, 1);
+            read.submit(() -> read(guide, unchanged));
+            ++count;
+        }
+        // Stages submit to the next one, so all submissions to a stage
+        // are done once the previous one is done.
+        read.waitForSuccessOrThrow(timeout);
+        extract.waitForSuccessOrThrow(timeout);
+        submitCurrentBatch();
+        submit.waitForSuccessOrThrow(timeout);
+        long indexed = indexedCount.longValue();
+        Log.infof("Indexed %d documents out of %d; %s.", indexed, count, batchSize.summary());
+        return indexed;
+    }
+
+    private void read(Guide guide, Predicate<Guide> unchanged) {
+        long hashStart = System.nanoTime();
+        // Hashing may require waiting for content, e.g. for prefetched Quarkiverse guides:
+        // it must not happen while pulling guides, so that it overlaps with prefetching.
+        guide.contentHash = hasher.hash(guide);
+        if (unchanged.test(guide)) {
+            read.record(hashStart, 1);
+            return;
+        }
+        // If we're short on memory, submitting the current batch early will release some.
+        int permits = heapBudget.acquire(contentBytes(guide), this::submitCurrentBatch, timeout);
+        try {
+            long start = System.nanoTime();
+            replaceContentProviders(guide, provider -> {
+                try {
+                    return InMemoryInputProvider.read(provider);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Failed to read '%s': %s".formatted(provider, e.getMessage()), e);
+                }
+            });
+            read.record(start, 1);
+        } catch (RuntimeException | Error e) {
+            heapBudget.release(permits);
+            throw e;
+        }
+        extract.submit(() -> extract(guide, permits));
+    }
+
+    private void extract(Guide guide, int permits) {
+        try {
+            long start = System.nanoTime();
+            // Only the text remains in memory: content read in the previous stage gets released.
+            replaceContentProviders(guide, provider -> ExtractedTextInputProvider.extract(provider,
+                    provider instanceof InMemoryInputProvider inMemory ? inMemory.source() : provider));
+            extract.record(start, 1);
+        } catch (RuntimeException | Error e) {
+            heapBudget.release(permits);
+            throw e;
+        }
+        long guideBytes = extractedBytes(guide);
+        job.bytesExtracted(guideBytes);
+        List<Guide> batch = null;
+        long batchBytes = 0L;
+        int batchPermits = 0;
+        synchronized (this) {
+            currentBatch.add(guide);
+            currentBatchBytes += guideBytes;
+            currentBatchPermits += permits;
+            if (currentBatchBytes >= batchSize.targetBytes() || currentBatch.size() >= maxBatchDocuments
+                    // Readers are waiting for this batch's memory: don't wait for more guides.
+                    || heapBudget.isExhausted()) {
+                batch = currentBatch;
+                batchBytes = currentBatchBytes;
+                batchPermits = currentBatchPermits;
+                currentBatch = new ArrayList<>();
+                currentBatchBytes = 0L;
+                currentBatchPermits = 0;
+            }
+        }
+        if (batch != null) {
+            submit(batch, batchBytes, batchPermits);
+        }
+    }
+
+    private void submitCurrentBatch() {
+        List<Guide> batch;
+        long batchBytes;
+        int batchPermits;
+        synchronized (this) {
+            batch = currentBatch;
+            batchBytes = currentBatchBytes;
+            batchPermits = currentBatchPermits;
+            currentBatch = new ArrayList<>();
+            currentBatchBytes = 0L;
+            currentBatchPermits = 0;
+        }
+        if (!batch.isEmpty()) {
+            submit(batch, batchBytes, batchPermits);
+        }
+    }
+
+    private void submit(List<Guide> batch, long batchBytes, int batchPermits) {
+        submit.submit(() -> {
+            try {
+                long start = System.nanoTime();
+                var latency = indexWithRetries(batch);
+                batchSize.onSuccess(batchBytes, batch.size(), latency);
+                // Time spent in this stage, retries and backoff included.
+                submit.record(start, batch.size());
+                indexedCount.add(batch.size());
+                job.documentsIndexed(batch.size());
+                // This might lead to duplicate logs, but we don't care.
+                Log.infof("Indexed %d documents...", indexedCount.longValue());
+            } finally {
+                heapBudget.release(batchPermits);
+            }
+        });
+    }
+
+    /**
+     * @return The latency of the successful attempt, excluding failed attempts and backoff,
+     *         so that it only reflects how the search backend copes with batches of that size.
+     */
+    private Duration indexWithRetries(List<Guide> batch) {
+        var backoff = initialBackoff;
+        for (int attempt = 0;; attempt++) {
+            long start = System.nanoTime();
+            try {
+                batchIndexer.accept(batch);
+                return Duration.ofNanos(System.nanoTime() - start);
+            } catch (RuntimeException e) {
+                if (attempt >= maxRetries || !isRejection(e)) {
+                    throw e;
+                }
+                batchSize.onRejection();
+                Log.infof("Search backend rejected an indexing batch of %d documents as overloaded; retrying in %s",
+                        batch.size(), backoff);
+                try {
+                    Thread.sleep(backoff.toMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    e.addSuppressed(interrupted);
+                    throw e;
+                }
+                backoff = backoff.multipliedBy(2);
+            }
+        }
+    }
+
+    /**
+     * @return Whether the exception indicates the search backend rejected requests because it is overloaded
+     *         (HTTP 429 Too Many Requests, or a full write thread pool queue).
+     */
+    private static boolean isRejection(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            var message = t.getMessage();
+            // Elasticsearch uses "es_rejected_execution_exception", OpenSearch "rejected_execution_exception".
+            if (message != null && (message.contains("rejected_execution_exception")
+                    || message.contains("Too Many Requests"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long contentBytes(Guide guide) {
+        long bytes = 0L;
+        for (InputProvider provider : guide.htmlFullContentProvider.asMap().values()) {
+            try {
+                bytes += provider.size();
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to get the size of '%s': %s".formatted(provider, e.getMessage()), e);
+            }
+        }
+        return bytes;
+    }
+
+    private static long extractedBytes(Guide guide) {
+        long bytes = 0L;
+        for (InputProvider provider : guide.htmlFullContentProvider.asMap().values()) {
+            if (provider instanceof ExtractedTextInputProvider extracted) {
+                // Close enough to the size in bytes for mostly-ASCII content, and much cheaper to compute.
+                bytes += extracted.text().length();
+            }
+        }
+        return bytes;
+    }
+
+    private static void replaceContentProviders(Guide guide, Function<InputProvider, InputProvider> replacement) {
+        for (Map.Entry<Language, InputProvider> entry : guide.htmlFullContentProvider.asMap().entrySet()) {
+            guide.htmlFullContentProvider.set(entry.getKey(), replacement.apply(entry.getValue()));
+        }
+    }
+
+    private final class Stage {
+        private final SimpleExecutor executor;
+        private final Counter items;
+        private final Timer duration;
+        private final Gauge queue;
+
+        private Stage(String name, SimpleExecutor executor) {
+            this.executor = executor;
+            this.items = Counter.builder(ITEMS_METRIC)
+                    .description("Items processed by an indexing stage")
+                    .tag("stage", name)
+                    .register(meterRegistry);
+            this.duration = Timer.builder(DURATION_METRIC)
+                    .description("Time spent processing an item (or a batch, for the submit stage) in an indexing stage")
+                    .tag("stage", name)
+                    .register(meterRegistry);
+            this.queue = executor == null ? null
+                    : Gauge.builder(QUEUE_METRIC, executor, SimpleExecutor::queueSize)
+                            .description("Items waiting for a thread in an indexing stage")
+                            .tag("stage", name)
+                            .register(meterRegistry);
+        }
+
+        void submit(Runnable runnable) {
+            executor.submit(runnable);
+        }
+
+        void record(long startNanos, int itemCount) {
+            duration.record(Duration.ofNanos(System.nanoTime() - startNanos));
+            items.increment(itemCount);
+        }
+
+        void waitForSuccessOrThrow(Duration timeout) {
+            executor.waitForSuccessOrThrow(timeout);
+        }
+
+        void close() {
+            if (queue != null) {
+                // The gauge references this pipeline's executor: a later pipeline will register its own.
+                meterRegistry.remove(queue);
+            }
+            if (executor != null) {
+                executor.close();
+            }
+        }
+    }
+}
@@ -3,12 +3,21 @@ package io.quarkus.search.app.indexing;
 import static io.quarkus.search.app.util.MutinyUtils.waitForeverFor;
 
 import java.io.IOException;
+import java.net.URI;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
 import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -17,31 +26,51 @@ import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 
 import io.quarkus.search.app.ReferenceService;
+import io.quarkus.search.app.ReferenceSnapshot;
+import io.quarkus.search.app.entity.Guide;
+import io.quarkus.search.app.entity.Language;
+import io.quarkus.search.app.entity.QuarkusVersionAndLanguageRoutingBinder;
 import io.quarkus.search.app.fetching.FetchingService;
+import io.quarkus.search.app.quarkusio.GuideSlice;
 import io.quarkus.search.app.quarkusio.QuarkusIO;
-import io.quarkus.search.app.util.SimpleExecutor;
 
 import io.quarkus.logging.Log;
-import io.quarkus.narayana.jta.QuarkusTransaction;
 import io.quarkus.runtime.StartupEvent;
 import io.quarkus.scheduler.Scheduled;
 import io.quarkus.vertx.http.ManagementInterface;
 
 import org.hibernate.Session;
 import org.hibernate.search.backend.elasticsearch.ElasticsearchBackend;
+import org.hibernate.search.engine.search.aggregation.AggregationKey;
 import org.hibernate.search.mapper.orm.mapping.SearchMapping;
 import org.hibernate.search.mapper.orm.session.SearchSession;
 
 import org.elasticsearch.client.Request;
 import org.elasticsearch.client.RestClient;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import io.micrometer.core.instrument.MeterRegistry;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.vertx.core.MultiMap;
+import io.vertx.ext.web.RoutingContext;
 
 @ApplicationScoped
 public class IndexingService {
 
     private static final String REINDEX_ENDPOINT_PATH = "/reindex";
+    private static final String REINDEX_JOBS_ENDPOINT_PATH = "/reindex/jobs";
+    private static final int RECENT_JOBS = 10;
+    private static final String ROLLBACK_ENDPOINT_PATH = "/rollback";
+    private static final int INDEXED_GUIDES_SCROLL_CHUNK_SIZE = 1000;
+    private static final AggregationKey<Map<String, Long>> VERSIONS_AGGREGATION = AggregationKey.of("versions");
+    /**
+     * Some fields are excluded from {@code _source} to save space (see mapping-template.json),
+     * so they must be restored from other fields when copying documents from one index to another.
+     */
+    private static final JsonObject RESTORE_EXCLUDED_SOURCE_SCRIPT = restoreExcludedSourceScript();
 
     @Inject
     SearchMapping searchMapping;
@@ -61,14 +90,142 @@ public class IndexingService {
     @Inject
     ReferenceService referenceService;
 
+    @Inject
+    IndexGeneration indexGeneration;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
     private final AtomicBoolean reindexingInProgress = new AtomicBoolean();
+    // Guarded by itself; the current job, if any, is always the most recent one.
+    private final Map<String, ReindexJob> recentJobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ReindexJob> eldest) {
+            return size() > RECENT_JOBS;
+        }
+    };
 
     void registerManagementRoutes(@Observes ManagementInterface mi) {
+        // Blocks until reindexing is done; mostly useful for scripts and tests.
         mi.router().get(REINDEX_ENDPOINT_PATH)
                 .blockingHandler(rc -> {
-                    reindex();
+                    var job = parseReindexJob(rc);
+                    if (job == null) {
+                        return;
+                    }
+                    reindex(job);
                     rc.end("Success");
                 });
+        mi.router().post(REINDEX_ENDPOINT_PATH)
+                .handler(rc -> {
+                    var job = parseReindexJob(rc);
+                    if (job == null) {
+                        return;
+                    }
+                    try {
+                        reindexInBackground(job);
+                    } catch (ReindexingAlreadyInProgressException e) {
+                        rc.response().setStatusCode(409).end(e.getMessage());
+                        return;
+                    }
+                    rc.response().setStatusCode(202)
+                            .putHeader("Location", REINDEX_JOBS_ENDPOINT_PATH + "/" + job.id());
+                    rc.json(job.toJson());
+                });
+        mi.router().get(REINDEX_JOBS_ENDPOINT_PATH)
+                .handler(rc -> rc.json(recentJobs().stream().map(ReindexJob::toJson).toList()));
+        mi.router().get(REINDEX_JOBS_ENDPOINT_PATH + "/:id")
+                .handler(rc -> {
+                    var job = recentJob(rc.pathParam("id"));
+                    if (job == null) {
+                        rc.response().setStatusCode(404).end("Unknown job '%s'".formatted(rc.pathParam("id")));
+                        return;
+                    }
+                    rc.json(job.toJson());
+                });
+        mi.router().delete(REINDEX_JOBS_ENDPOINT_PATH + "/:id")
+                .handler(rc -> {
+                    var job = recentJob(rc.pathParam("id"));
+                    if (job == null) {
+                        rc.response().setStatusCode(404).end("Unknown job '%s'".formatted(rc.pathParam("id")));
+                        return;
+                    }
+                    if (!job.cancel()) {
+                        rc.response().setStatusCode(409).end("Job '%s' already finished".formatted(job.id()));
+                        return;
+                    }
+                    Log.infof("Cancellation requested for reindexing job %s", job.id());
+                    rc.response().setStatusCode(202);
+                    rc.json(job.toJson());
+                });
+        mi.router().get(ROLLBACK_ENDPOINT_PATH)
+                .blockingHandler(rc -> {
+                    var generationParam = rc.queryParams().get("generation");
+                    OptionalInt generation;
+                    try {
+                        generation = generationParam == null ? OptionalInt.empty()
+                                : OptionalInt.of(Integer.parseInt(generationParam));
+                    } catch (NumberFormatException e) {
+                        rc.response().setStatusCode(400)
+                                .end("Invalid generation '%s'; expected a number".formatted(generationParam));
+                        return;
+                    }
+                    List<String> liveIndexes;
+                    try {
+                        liveIndexes = rollBack(generation);
+                    } catch (IllegalArgumentException e) {
+                        rc.response().setStatusCode(400).end(e.getMessage());
+                        return;
+                    }
+                    rc.end("Success; live indexes: " + liveIndexes);
+                });
+    }
+
+    /**
+     * @return A manual reindexing job as described by query parameters,
+     *         or {@code null} if parameters are invalid, in which case a response was already sent.
+     */
+    private static ReindexJob parseReindexJob(RoutingContext rc) {
+        var modeParam = rc.queryParams().get("mode");
+        IndexingConfig.Mode mode;
+        try {
+            mode = modeParam == null ? IndexingConfig.Mode.FULL
+                    : IndexingConfig.Mode.valueOf(modeParam.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            rc.response().setStatusCode(400)
+                    .end("Invalid mode '%s'; expected one of %s".formatted(modeParam,
+                            Arrays.toString(IndexingConfig.Mode.values())));
+            return null;
+        }
+        GuideSlice slice;
+        try {
+            slice = new GuideSlice(queryValues(rc.queryParams(), "version"),
+                    queryValues(rc.queryParams(), "language").stream()
+                            .map(Language::fromString)
+                            .collect(Collectors.toSet()),
+                    queryValues(rc.queryParams(), "origin"));
+        } catch (IllegalArgumentException e) {
+            rc.response().setStatusCode(400).end(e.getMessage());
+            return null;
+        }
+        if (!slice.isAll() && modeParam != null) {
+            rc.response().setStatusCode(400)
+                    .end("Reindexing a subset of guides (version, language, origin) always happens in place;"
+                            + " parameter 'mode' cannot be set");
+            return null;
+        }
+        return new ReindexJob(ReindexJob.Trigger.MANUAL, mode, slice);
+    }
+
+    /**
+     * @return Values of the given query parameter, which may be repeated or comma-separated.
+     */
+    private static Set<String> queryValues(MultiMap params, String name) {
+        return params.getAll(name).stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(value -> !value.isEmpty())
+                .collect(Collectors.toSet());
     }
 
     void indexOnStartup(@Observes StartupEvent ev) {
@@ -91,10 +248,7 @@ public class IndexingService {
                         .item(() -> {
                             if (IndexingConfig.OnStartup.When.INDEXES_EMPTY.equals(indexingConfig.onStartup().when())) {
                                 try {
-                                    long documentCount = QuarkusTransaction.requiringNew().call(
-                                            () -> searchSession.search(Object.class)
-                                                    .where(f -> f.matchAll())
-                                                    .fetchTotalHitCount());
+                                    long documentCount = documentCount();
                                     if (documentCount > 0L) {
                                         Log.infof("Not reindexing on startup:"
                                                 + " index are present, reachable, and contain %s documents."
@@ -108,7 +262,8 @@ public class IndexingService {
                                             e, "Reindexing on startup: could not determine the content of indexes");
                                 }
                             }
-                            reindex();
+                            reindex(new ReindexJob(ReindexJob.Trigger.STARTUP, IndexingConfig.Mode.FULL,
+                                    GuideSlice.ALL));
                             return null;
                         })
                         .runSubscriptionOn(Infrastructure.getDefaultWorkerPool()))
@@ -123,7 +278,7 @@ public class IndexingService {
     void indexOnTime() {
         try {
             Log.infof("Scheduled reindexing starting...");
-            reindex();
+            reindex(new ReindexJob(ReindexJob.Trigger.SCHEDULED, indexingConfig.scheduled().mode(), GuideSlice.ALL));
             Log.infof("Scheduled reindexing finished.");
         } catch (ReindexingAlreadyInProgressException e) {
             Log.infof("Indexing was already started by some other process.");
@@ -132,6 +287,13 @@ public class IndexingService {
         }
     }
 
+    @ActivateRequestContext
+    long documentCount() {
+        return searchSession.search(Object.class)
+                .where(f -> f.matchAll())
+                .fetchTotalHitCount();
+    }
+
     private boolean isSearchBackendReachable() {
         try {
             searchMapping.backend().unwrap(ElasticsearchBackend.class).client(RestClient.class)
@@ -172,18 +334,67 @@ public class IndexingService {
         }
     }
 
-    @ActivateRequestContext
-    protected void reindex() {
+    /**
+     * Reindexes, blocking until done.
+     *
+     * @param job The job describing how to reindex, and tracking progress.
+     * @throws ReindexingAlreadyInProgressException If another job is running.
+     */
+    protected void reindex(ReindexJob job) {
+        begin(job);
+        run(job);
+    }
+
+    /**
+     * Starts reindexing in a worker thread.
+     *
+     * @param job The job describing how to reindex, and tracking progress.
+     * @throws ReindexingAlreadyInProgressException If another job is running.
+     */
+    protected void reindexInBackground(ReindexJob job) {
+        begin(job);
+        try {
+            Infrastructure.getDefaultWorkerPool().execute(() -> {
+                try {
+                    run(job);
+                } catch (RuntimeException e) {
+                    if (!ReindexJob.isCancellation(e)) {
+                        Log.errorf(e, "Reindexing job %s failed: %s", job.id(), e.getMessage());
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            job.failed(e);
+            reindexingInProgress.set(false);
+            throw e;
+        }
+    }
+
+    private void begin(ReindexJob job) {
         // Reindexing requires exclusive access to the DB/indexes
         if (!reindexingInProgress.compareAndSet(false, true)) {
             throw new ReindexingAlreadyInProgressException();
         }
+        synchronized (recentJobs) {
+            recentJobs.put(job.id(), job);
+        }
+        Log.infof("Reindexing job %s started: %s", job.id(), job);
+    }
+
+    @ActivateRequestContext
+    protected void run(ReindexJob job) {
         try (FailureCollector failureCollector = new FailureCollector(indexingConfig.errorReporting())) {
             try {
                 createIndexes();
-                indexAll(failureCollector);
+                index(job, failureCollector);
+                job.succeeded();
             } catch (RuntimeException e) {
-                failureCollector.critical(FailureCollector.Stage.INDEXING, "Indexing failed: " + e.getMessage(), e);
+                job.failed(e);
+                if (ReindexJob.isCancellation(e)) {
+                    Log.infof("Reindexing job %s cancelled", job.id());
+                } else {
+                    failureCollector.critical(FailureCollector.Stage.INDEXING, "Indexing failed: " + e.getMessage(), e);
+                }
                 // Re-throw even though we've reported the failure, for the benefit of callers/logs
                 throw e;
             }
@@ -192,6 +403,41 @@ public class IndexingService {
         }
     }
 
+    private List<ReindexJob> recentJobs() {
+        synchronized (recentJobs) {
+            return new ArrayList<>(recentJobs.values());
+        }
+    }
+
+    private ReindexJob recentJob(String id) {
+        synchronized (recentJobs) {
+            return recentJobs.get(id);
+        }
+    }
+
+    /**
+     * Points aliases back to a previous generation of indexes, e.g. after a bad deploy of the documentation.
+     *
+     * @param generation The generation to point aliases to, or an empty optional for the one before the live one.
+     * @return The names of indexes now live.
+     * @see Rollover#rollBackTo(SearchMapping, OptionalInt)
+     */
+    protected List<String> rollBack(OptionalInt generation) {
+        // Indexing changes aliases too
+        if (!reindexingInProgress.compareAndSet(false, true)) {
+            throw new ReindexingAlreadyInProgressException();
+        }
+        try {
+            var liveIndexes = Rollover.rollBackTo(searchMapping, generation);
+            referenceService.invalidate();
+            // Search results cached for the previous generation will simply stop being used.
+            indexGeneration.next();
+            return liveIndexes;
+        } finally {
+            reindexingInProgress.set(false);
+        }
+    }
+
     private static class ReindexingAlreadyInProgressException extends RuntimeException {
         ReindexingAlreadyInProgressException() {
             super("Reindexing is already in progress and cannot be started at this moment");
@@ -227,69 +473,286 @@ public class IndexingService {
         }
     }
 
-    private void indexAll(FailureCollector failureCollector) {
+    private void index(ReindexJob job, FailureCollector failureCollector) {
+        var slice = job.slice();
+        try (QuarkusIO quarkusIO = fetchingService.fetchQuarkusIo(failureCollector, slice)) {
+            if (!slice.isAll()) {
+                indexSlice(job, quarkusIO, slice);
+                return;
+            }
+            if (IndexingConfig.Mode.INCREMENTAL.equals(job.mode()) && indexChanges(job, quarkusIO)) {
+                return;
+            }
+            indexAll(job, quarkusIO);
+        } catch (RuntimeException | IOException e) {
+            throw new IllegalStateException("Failed to index data: " + e.getMessage(), e);
+        }
+    }
+
+    private void indexAll(ReindexJob job, QuarkusIO quarkusIO) throws IOException {
         Log.info("Indexing...");
-        try (Rollover rollover = Rollover.start(searchMapping)) {
-            try (QuarkusIO quarkusIO = fetchingService.fetchQuarkusIo(failureCollector)) {
-                indexQuarkusIo(quarkusIO);
+        Map<URI, IndexedGuide> previousGuides = indexedGuides();
+        if (!previousGuides.isEmpty()) {
+            job.expectDocuments(previousGuides.size());
+        }
+        job.stage(ReindexJob.Stage.INDEXING);
+        // Cancelling before the rollover gets committed rolls it back, see Rollover#close.
+        try (Rollover rollover = Rollover.start(searchMapping, indexingConfig)) {
+            var referenceSnapshotBuilder = ReferenceSnapshot.builder();
+            // Guides get hashed and compared concurrently, see IndexingPipeline.
+            List<String> unchangedGuideIds = Collections.synchronizedList(new ArrayList<>());
+            long sentCount;
+            Log.info("Indexing quarkus.io...");
+            try (var guideStream = quarkusIO.guides();
+                    var pipeline = new IndexingPipeline(indexingConfig, meterRegistry, job,
+                            GuideContentHasher.create(searchMapping), this::indexBatch)) {
+                // Guides are consumed from a single thread, see IndexingPipeline.
+                sentCount = pipeline.indexAll(guideStream.peek(referenceSnapshotBuilder::add).iterator(),
+                        guide -> {
+                            if (isUnchanged(previousGuides.get(guide.url), guide)) {
+                                unchangedGuideIds.add(guide.url.toString());
+                                job.documentsSkipped(1);
+                                return true;
+                            }
+                            return false;
+                        });
             }
+            job.stage(ReindexJob.Stage.COPYING);
+            long copiedCount = rollover.copyFromPreviousIndex(searchMapping.indexedEntity(Guide.class),
+                    unchangedGuideIds, RESTORE_EXCLUDED_SOURCE_SCRIPT);
+            Log.infof("Indexed %d documents: %d sent, %d unchanged and copied from previous indexes.",
+                    sentCount + copiedCount, sentCount, copiedCount);
 
             // Refresh BEFORE committing the rollover,
             // so that the new indexes are fully refreshed
             // as soon as we switch the aliases.
+            job.stage(ReindexJob.Stage.REFRESHING);
             Log.info("Refreshing indexes...");
             searchMapping.scope(Object.class).workspace().refresh();
 
+            job.stage(ReindexJob.Stage.COMMITTING);
+            new IndexMetadata(Instant.now(), quarkusIO.revisions()).write(searchMapping);
             rollover.commit();
-            referenceService.invalidateCaches();
+            referenceService.publish(referenceSnapshotBuilder.build());
+            // Search results cached for the previous generation will simply stop being used.
+            // Must happen last, so that anything tagged with the new generation (e.g. ETags)
+            // is bound to reflect the new content.
+            indexGeneration.next();
             Log.info("Indexing success");
-        } catch (RuntimeException | IOException e) {
-            throw new IllegalStateException("Failed to index data: " + e.getMessage(), e);
         }
     }
 
-    private void indexQuarkusIo(QuarkusIO quarkusIO) throws IOException {
-        Log.info("Indexing quarkus.io...");
+    /**
+     * Updates/deletes, in place, only documents affected by changes since the last indexing.
+     *
+     * @return {@code true} on success, {@code false} if changes could not be determined
+     *         and full indexing is required.
+     */
+    private boolean indexChanges(ReindexJob job, QuarkusIO quarkusIO) throws IOException {
+        var previous = IndexMetadata.read(searchMapping).orElse(null);
+        if (previous == null) {
+            Log.info("Cannot index changes only: indexes do not record what they were built from.");
+            return false;
+        }
+        if (previous.fullIndexing().plus(indexingConfig.incremental().maxAge()).isBefore(Instant.now())) {
+            Log.infof("Cannot index changes only: last full indexing happened more than %s ago.",
+                    indexingConfig.incremental().maxAge());
+            return false;
+        }
+        var changed = quarkusIO.changedGuidesSince(previous.revisions()).orElse(null);
+        if (changed == null) {
+            Log.info("Cannot index changes only: unable to determine changes since last indexing.");
+            return false;
+        }
+
+        Log.info("Indexing changes...");
+        // Only read after this point, including concurrently by the pipeline.
+        Map<URI, IndexedGuide> previousGuides = indexedGuides();
+        // Whatever remains in this map after indexing no longer exists and must be deleted.
+        Map<URI, IndexedGuide> removedGuides = new HashMap<>(previousGuides);
+        job.expectDocuments(previousGuides.size());
+        job.stage(ReindexJob.Stage.INDEXING);
+        var referenceSnapshotBuilder = ReferenceSnapshot.builder();
+        long indexedCount;
         try (var guideStream = quarkusIO.guides();
-                var executor = new SimpleExecutor(indexingConfig.parallelism())) {
-            indexAll(executor, guideStream.iterator());
+                var pipeline = new IndexingPipeline(indexingConfig, meterRegistry, job,
+                        GuideContentHasher.create(searchMapping), this::indexBatch)) {
+            // Guides are consumed from a single thread, see IndexingPipeline.
+            indexedCount = pipeline.indexAll(guideStream.peek(referenceSnapshotBuilder::add)
+                    .filter(guide -> {
+                        // New guides are absent from the map, and thus always get indexed.
+                        if (removedGuides.remove(guide.url) == null || changed.test(guide)) {
+                            return true;
+                        }
+                        job.documentsSkipped(1);
+                        return false;
+                    })
+                    .iterator(),
+                    // Possibly changed guides may turn out to be unchanged once hashed.
+                    guide -> {
+                        if (isUnchanged(previousGuides.get(guide.url), guide)) {
+                            job.documentsSkipped(1);
+                            return true;
+                        }
+                        return false;
+                    });
+        }
+        job.stage(ReindexJob.Stage.DELETING);
+        purge(removedGuides);
+        Log.infof("Deleted %d documents.", removedGuides.size());
+
+        job.stage(ReindexJob.Stage.REFRESHING);
+        if (indexedCount > 0 || !removedGuides.isEmpty()) {
+            Log.info("Refreshing indexes...");
+            searchMapping.scope(Object.class).workspace().refresh();
+        }
+        // Last chance to cancel: from now on, index metadata must end up matching what got indexed.
+        job.stage(ReindexJob.Stage.COMMITTING);
+        new IndexMetadata(previous.fullIndexing(), quarkusIO.revisions()).write(searchMapping);
+        if (indexedCount > 0 || !removedGuides.isEmpty()) {
+            referenceService.publish(referenceSnapshotBuilder.build());
+            // See indexAll.
+            indexGeneration.next();
+        }
+        Log.info("Indexing success");
+        return true;
+    }
+
+    /**
+     * Indexes again, in place, all guides in the given slice,
+     * then deletes documents of that slice that were not indexed again, i.e. that no longer exist.
+     * <p>
+     * Index metadata is left as-is, since the rest of the indexes was not updated.
+     */
+    private void indexSlice(ReindexJob job, QuarkusIO quarkusIO, GuideSlice slice) throws IOException {
+        Log.infof("Indexing guides in %s...", slice);
+        job.stage(ReindexJob.Stage.INDEXING);
+        Set<String> indexedIds = new HashSet<>();
+        long indexedCount;
+        try (var guideStream = quarkusIO.guides(slice);
+                var pipeline = new IndexingPipeline(indexingConfig, meterRegistry, job,
+                        GuideContentHasher.create(searchMapping), this::indexBatch)) {
+            // Guides are consumed from a single thread, see IndexingPipeline.
+            indexedCount = pipeline.indexAll(guideStream.peek(guide -> indexedIds.add(guide.url.toString())).iterator());
         }
+        job.stage(ReindexJob.Stage.DELETING);
+        long deletedCount = StaleDocuments.delete(searchMapping, routingKeys(slice), slice.origins(), indexedIds);
+        Log.infof("Indexed %d documents, deleted %d.", indexedCount, deletedCount);
+
+        job.stage(ReindexJob.Stage.REFRESHING);
+        Log.info("Refreshing indexes...");
+        searchMapping.scope(Object.class).workspace().refresh();
+        // We only have reference data for the slice: let it be loaded again from indexes.
+        referenceService.invalidate();
+        // See indexAll.
+        indexGeneration.next();
+        Log.info("Indexing success");
     }
 
-    private <T> void indexAll(SimpleExecutor executor, Iterator<T> docIterator) {
-        LongAdder indexedCount = new LongAdder();
-        while (docIterator.hasNext()) {
-            List<T> docs = new ArrayList<>();
-            for (int i = 0; docIterator.hasNext() && i < indexingConfig.batchSize(); i++) {
-                docs.add(docIterator.next());
+    private Set<String> routingKeys(GuideSlice slice) {
+        Set<String> versions = slice.versions().isEmpty() ? indexedVersions() : slice.versions();
+        Set<String> keys = new HashSet<>();
+        for (String version : versions) {
+            for (Language language : Language.values()) {
+                if (slice.includesLanguage(language)) {
+                    keys.add(QuarkusVersionAndLanguageRoutingBinder.key(version, language));
+                }
             }
-            executor.submit(() -> {
-                indexBatch(docs);
-                indexedCount.add(docs.size());
-                // This might lead to duplicate logs, but we don't care.
-                Log.infof("Indexed %d documents...", indexedCount.longValue());
-            });
+            if (slice.includesLanguage(null)) {
+                // Guides without a language, see GuideSlice.
+                keys.add(QuarkusVersionAndLanguageRoutingBinder.key(version, null));
+            }
+        }
+        return keys;
+    }
+
+    private Set<String> indexedVersions() {
+        return searchSession.search(Guide.class)
+                .where(f -> f.matchAll())
+                .aggregation(VERSIONS_AGGREGATION, f -> f.terms().field("quarkusVersion", String.class)
+                        .maxTermCount(Integer.MAX_VALUE))
+                .fetch(0)
+                .aggregation(VERSIONS_AGGREGATION)
+                .keySet();
+    }
+
+    private Map<URI, IndexedGuide> indexedGuides() {
+        Map<URI, IndexedGuide> result = new HashMap<>();
+        try (var scroll = searchSession.search(Guide.class)
+                .select(f -> f.composite()
+                        .from(f.id(URI.class), f.field("quarkusVersion", String.class),
+                                f.field("language", Language.class), f.field("contentHash", String.class))
+                        .asList(hit -> Map.entry((URI) hit.get(0), new IndexedGuide(
+                                QuarkusVersionAndLanguageRoutingBinder.key((String) hit.get(1), (Language) hit.get(2)),
+                                (String) hit.get(3)))))
+                .where(f -> f.matchAll())
+                .scroll(INDEXED_GUIDES_SCROLL_CHUNK_SIZE)) {
+            for (var chunk = scroll.next(); chunk.hasHits(); chunk = scroll.next()) {
+                for (var hit : chunk.hits()) {
+                    result.put(hit.getKey(), hit.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean isUnchanged(IndexedGuide previous, Guide guide) {
+        return previous != null && previous.contentHash() != null
+                && previous.contentHash().equals(guide.contentHash);
+    }
+
+    private static JsonObject restoreExcludedSourceScript() {
+        var languages = new JsonArray();
+        for (Language language : Language.values()) {
+            languages.add(language.code);
         }
-        executor.waitForSuccessOrThrow(indexingConfig.timeout());
-        Log.infof("Indexed %d documents.", indexedCount.longValue());
+        var params = new JsonObject();
+        params.add("languages", languages);
+        var script = new JsonObject();
+        script.addProperty("lang", "painless");
+        script.addProperty("source", """
+                for (String language : params.languages) {
+                  def content = ctx._source['fullContent_' + language];
+                  if (content != null) {
+                    ctx._source['fullContent_autocomplete_' + language] = content;
+                  }
+                }
+                """);
+        script.add("params", params);
+        return script;
+    }
+
+    private record IndexedGuide(String routingKey, String contentHash) {
     }
 
+    // Indexing plans don't need a transaction: we never touch the database,
+    // and execute plans explicitly instead of waiting for a transaction to commit.
     @ActivateRequestContext
     <T> void indexBatch(List<T> docs) {
-        QuarkusTransaction.requiringNew()
-                .timeout((int) indexingConfig.timeout().toSeconds())
-                .run(() -> {
-                    var indexingPlan = searchSession.indexingPlan();
-                    for (T doc : docs) {
-                        try {
-                            Log.tracef("About to index: %s", doc);
-                            // Not using session.persist because 1. we don't need it and 2. it takes time and memory
-                            indexingPlan.addOrUpdate(doc);
-                        } catch (RuntimeException e) {
-                            throw new IllegalStateException("Failed to persist '%s': %s".formatted(doc, e.getMessage()), e);
-                        }
-                    }
-                });
+        var indexingPlan = searchSession.indexingPlan();
+        for (T doc : docs) {
+            try {
+                Log.tracef("About to index: %s", doc);
+                // Not using session.persist because 1. we don't need it and 2. it takes time and memory
+                indexingPlan.addOrUpdate(doc);
+            } catch (RuntimeException e) {
+                throw new IllegalStateException("Failed to persist '%s': %s".formatted(doc, e.getMessage()), e);
+            }
+        }
+        indexingPlan.execute();
+    }
+
+    @ActivateRequestContext
+    void purge(Map<URI, IndexedGuide> guides) {
+        if (guides.isEmpty()) {
+            return;
+        }
+        var indexingPlan = searchSession.indexingPlan();
+        guides.forEach((url, guide) -> {
+            Log.tracef("About to delete: %s", url);
+            indexingPlan.purge(Guide.class, url, guide.routingKey());
+        });
+        indexingPlan.execute();
     }
 
 }
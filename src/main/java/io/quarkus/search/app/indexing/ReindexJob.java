@@ -0,0 +1,205 @@
+package io.quarkus.search.app.indexing;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.quarkus.search.app.quarkusio.GuideSlice;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A run of reindexing, whether requested through the management interface, scheduled, or on startup.
+ * <p>
+ * Progress gets reported by indexing threads, and read by management requests.
+ */
+final class ReindexJob {
+
+    enum Trigger {
+        MANUAL,
+        SCHEDULED,
+        STARTUP
+    }
+
+    enum State {
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED
+    }
+
+    enum Stage {
+        FETCHING,
+        INDEXING,
+        COPYING,
+        DELETING,
+        REFRESHING,
+        COMMITTING
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final Trigger trigger;
+    private final IndexingConfig.Mode mode;
+    private final GuideSlice slice;
+    private final Instant started = Instant.now();
+
+    private volatile State state = State.RUNNING;
+    private volatile Stage stage = Stage.FETCHING;
+    private volatile Instant indexingStarted;
+    private volatile Instant finished;
+    private volatile String failure;
+    private volatile boolean cancelRequested;
+    private volatile long expectedDocuments = -1L;
+    private final LongAdder documentsIndexed = new LongAdder();
+    private final LongAdder documentsSkipped = new LongAdder();
+    private final LongAdder bytesExtracted = new LongAdder();
+
+    ReindexJob(Trigger trigger, IndexingConfig.Mode mode, GuideSlice slice) {
+        this.trigger = trigger;
+        this.mode = mode;
+        this.slice = slice;
+    }
+
+    String id() {
+        return id;
+    }
+
+    IndexingConfig.Mode mode() {
+        return mode;
+    }
+
+    GuideSlice slice() {
+        return slice;
+    }
+
+    State state() {
+        return state;
+    }
+
+    void stage(Stage stage) {
+        checkNotCancelled();
+        if (Stage.INDEXING.equals(stage) && indexingStarted == null) {
+            indexingStarted = Instant.now();
+        }
+        this.stage = stage;
+    }
+
+    /**
+     * @param count An estimate of the number of documents that will be processed (indexed or skipped), for the ETA.
+     */
+    void expectDocuments(long count) {
+        this.expectedDocuments = count;
+    }
+
+    void documentsIndexed(int count) {
+        documentsIndexed.add(count);
+    }
+
+    /**
+     * @param count The number of documents that didn't need to be sent to the search backend, e.g. because they didn't change.
+     */
+    void documentsSkipped(int count) {
+        documentsSkipped.add(count);
+    }
+
+    void bytesExtracted(long count) {
+        bytesExtracted.add(count);
+    }
+
+    /**
+     * Requests cancellation; indexing will stop at the next checkpoint, see {@link #checkNotCancelled()}.
+     *
+     * @return {@code true} if the job was still running, {@code false} otherwise.
+     */
+    boolean cancel() {
+        cancelRequested = true;
+        return State.RUNNING.equals(state);
+    }
+
+    /**
+     * @throws CancelledException If cancellation was requested.
+     */
+    void checkNotCancelled() {
+        if (cancelRequested) {
+            throw new CancelledException();
+        }
+    }
+
+    void succeeded() {
+        finish(State.SUCCEEDED, null);
+    }
+
+    void failed(Throwable throwable) {
+        if (isCancellation(throwable)) {
+            finish(State.CANCELLED, null);
+        } else {
+            finish(State.FAILED, throwable.getMessage());
+        }
+    }
+
+    private void finish(State state, String failure) {
+        this.failure = failure;
+        this.finished = Instant.now();
+        this.state = state;
+    }
+
+    static boolean isCancellation(Throwable throwable) {
+        for (Throwable t = throwable; t != null; t = t.getCause()) {
+            if (t instanceof CancelledException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    JsonObject toJson() {
+        long indexed = documentsIndexed.sum();
+        long processed = indexed + documentsSkipped.sum();
+        var json = new JsonObject()
+                .put("id", id)
+                .put("trigger", trigger.name().toLowerCase())
+                .put("mode", mode.name().toLowerCase())
+                .put("slice", slice.toString())
+                .put("state", state.name().toLowerCase())
+                .put("stage", stage.name().toLowerCase())
+                .put("started", started.toString())
+                .put("finished", finished == null ? null : finished.toString())
+                .put("documentsProcessed", processed)
+                .put("documentsIndexed", indexed)
+                .put("documentsSkipped", documentsSkipped.sum())
+                .put("expectedDocuments", expectedDocuments < 0 ? null : expectedDocuments)
+                .put("bytesExtracted", bytesExtracted.sum())
+                .put("failure", failure);
+        var indexingStarted = this.indexingStarted;
+        if (indexingStarted != null) {
+            var end = finished == null ? Instant.now() : finished;
+            double seconds = Duration.between(indexingStarted, end).toMillis() / 1000.0;
+            double throughput = seconds > 0 ? processed / seconds : 0.0;
+            json.put("documentsPerSecond", Math.round(throughput * 10.0) / 10.0);
+            if (State.RUNNING.equals(state) && Stage.INDEXING.equals(stage)
+                    && throughput > 0 && expectedDocuments > processed) {
+                long remainingSeconds = (long) Math.ceil((expectedDocuments - processed) / throughput);
+                json.put("eta", Instant.now().plusSeconds(remainingSeconds).toString());
+            }
+        }
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return "ReindexJob{" +
+                "id='" + id + '\'' +
+                ", trigger=" + trigger +
+                ", mode=" + mode +
+                ", slice=" + slice +
+                ", state=" + state +
+                '}';
+    }
+
+    static final class CancelledException extends RuntimeException {
+        CancelledException() {
+            super("Reindexing was cancelled");
+        }
+    }
+}
@@ -4,14 +4,19 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.OptionalInt;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -25,13 +30,17 @@ import org.hibernate.search.backend.elasticsearch.metamodel.ElasticsearchIndexDe
 import org.hibernate.search.mapper.orm.entity.SearchIndexedEntity;
 import org.hibernate.search.mapper.orm.mapping.SearchMapping;
 
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestClient;
 
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 
 /**
@@ -40,18 +49,50 @@ import com.google.gson.JsonObject;
  * then let the caller run indexing,
  * then commits or rolls back by atomically pointing aliases to the new (respectively old) index
  * and removing the old (respectively new) index.
+ * <p>
+ * Optionally, on commit, old indexes are retained as read-only "generations" instead of being removed,
+ * so that aliases can later be pointed back to them, see {@link #rollBackTo(SearchMapping, OptionalInt)}.
+ * <p>
+ * Optionally, new indexes are populated with {@link IndexingConfig.BulkLoad bulk-load settings}
+ * (no refresh, no replicas), and get their serving settings back when the rollover is committed.
  */
 public class Rollover implements Closeable {
 
+    private static final int COPY_BATCH_SIZE = 1000;
+    // Next to IndexMetadata's own key in the mapping's _meta
+    private static final String RETIRED_META_KEY = "quarkus-search-retired";
+    // Settings changed for bulk loading, and restored afterwards.
+    private static final List<String> BULK_LOAD_SETTINGS = List.of("refresh_interval", "number_of_replicas",
+            "auto_expand_replicas");
+
     /**
-     * Starts a rollover.
+     * Starts a rollover, creating new indexes with the same settings as those being replaced,
+     * and removing old indexes on commit.
      *
      * @param searchMapping The Hibernate Search mapping.
      * @return A closeable object allowing to commit a rollover,
      *         and which on close will do nothing if committed, or will roll back the rollover otherwise.
      */
     public static Rollover start(SearchMapping searchMapping) {
+        return start(searchMapping, null, 0);
+    }
+
+    /**
+     * Starts a rollover.
+     *
+     * @param searchMapping The Hibernate Search mapping.
+     * @param config The indexing configuration, for bulk-loading and retention of old indexes.
+     * @return A closeable object allowing to commit a rollover,
+     *         and which on close will do nothing if committed, or will roll back the rollover otherwise.
+     */
+    public static Rollover start(SearchMapping searchMapping, IndexingConfig config) {
+        return start(searchMapping, config.bulkLoad(), config.retention().generations());
+    }
+
+    private static Rollover start(SearchMapping searchMapping, IndexingConfig.BulkLoad bulkLoad,
+            int retainedGenerations) {
         Log.info("Starting index rollover");
+        boolean bulkLoading = bulkLoad != null && bulkLoad.enabled();
 
         var mappings = new HashMap<String, JsonObject>();
         var settings = new HashMap<String, JsonObject>();
@@ -68,7 +109,8 @@ public class Rollover implements Closeable {
             for (SearchIndexedEntity<?> entity : searchMapping.allIndexedEntities()) {
                 var index = entity.indexManager().unwrap(ElasticsearchIndexManager.class).descriptor();
                 successfulRollovers.add(rollover(client, gson, index,
-                        mappings.get(index.hibernateSearchName()), settings.get(index.hibernateSearchName())));
+                        mappings.get(index.hibernateSearchName()), settings.get(index.hibernateSearchName()),
+                        bulkLoading));
             }
         } catch (RuntimeException | IOException e) {
             try {
@@ -78,7 +120,144 @@ public class Rollover implements Closeable {
             }
             throw new IllegalStateException("Failed to start rollover: " + e.getMessage(), e);
         }
-        return new Rollover(client, gson, successfulRollovers);
+        return new Rollover(client, gson, successfulRollovers, bulkLoading ? bulkLoad : null, retainedGenerations);
+    }
+
+    /**
+     * Atomically points aliases back to a previous generation of indexes, retained on a previous commit.
+     * <p>
+     * The generation being replaced is retained as well, so this can be undone by pointing aliases to it.
+     *
+     * @param searchMapping The Hibernate Search mapping.
+     * @param generation The generation to point aliases to,
+     *        or an empty optional to point them to the latest generation before the live one.
+     * @return The names of indexes now targeted by aliases.
+     * @throws IllegalArgumentException If the requested generation does not exist.
+     */
+    public static List<String> rollBackTo(SearchMapping searchMapping, OptionalInt generation) {
+        var client = client(searchMapping);
+        var gson = new Gson();
+        var indexes = searchMapping.allIndexedEntities().stream()
+                .map(e -> e.indexManager().unwrap(ElasticsearchIndexManager.class).descriptor())
+                .toList();
+        try {
+            List<GenerationSwitch> switches = new ArrayList<>();
+            for (GetAliasedResult aliased : aliased(client, gson, indexes)) {
+                switches.add(generationSwitch(client, gson, aliased, generation));
+            }
+            Log.infof("Rolling back indexes: %s", switches);
+            for (GenerationSwitch generationSwitch : switches) {
+                setWriteBlock(client, gson, generationSwitch.target, false);
+            }
+            changeAliasesAtomically(client, gson, switches, generationSwitch -> {
+                var index = generationSwitch.index;
+                return Stream.of(
+                        aliasAction("add", Map.of(
+                                "index", generationSwitch.target,
+                                "alias", index.readName(),
+                                "is_write_index", "false")),
+                        aliasAction("add", Map.of(
+                                "index", generationSwitch.target,
+                                "alias", index.writeName(),
+                                "is_write_index", "true")),
+                        aliasAction("remove", Map.of(
+                                "index", generationSwitch.live,
+                                "alias", index.readName())),
+                        aliasAction("remove", Map.of(
+                                "index", generationSwitch.live,
+                                "alias", index.writeName())));
+            });
+            for (GenerationSwitch generationSwitch : switches) {
+                retain(client, gson, generationSwitch.live);
+            }
+            return switches.stream().map(GenerationSwitch::target).toList();
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (RuntimeException | IOException e) {
+            throw new IllegalStateException("Failed to roll back indexes: " + e.getMessage(), e);
+        }
+    }
+
+    private static GenerationSwitch generationSwitch(RestClient client, Gson gson, GetAliasedResult aliased,
+            OptionalInt generation) throws IOException {
+        var index = aliased.index;
+        if (aliased.allAliasedIndexes.size() != 1) {
+            throw new IllegalStateException("Aliases of index '%s' target multiple indexes %s; is indexing in progress?"
+                    .formatted(index.hibernateSearchName(), aliased.allAliasedIndexes));
+        }
+        String live = aliased.allAliasedIndexes.iterator().next();
+        var generations = generations(client, gson, index);
+        String target;
+        if (generation.isPresent()) {
+            target = generations.get(generation.getAsInt());
+            if (target == null) {
+                throw new IllegalArgumentException("Generation %d of index '%s' does not exist; available generations: %s"
+                        .formatted(generation.getAsInt(), index.hibernateSearchName(), generations.keySet()));
+            }
+        } else {
+            Integer liveGeneration = generationNumber(index, live);
+            if (liveGeneration == null) {
+                throw new IllegalStateException("Cannot determine the generation of live index '%s'".formatted(live));
+            }
+            var previous = generations.headMap(liveGeneration).lastEntry();
+            if (previous == null) {
+                throw new IllegalArgumentException("No generation of index '%s' before live index '%s'"
+                        .formatted(index.hibernateSearchName(), live));
+            }
+            target = previous.getValue();
+        }
+        if (target.equals(live)) {
+            throw new IllegalArgumentException("Index '%s' is already live".formatted(target));
+        }
+        return new GenerationSwitch(index, live, target);
+    }
+
+    private record GenerationSwitch(ElasticsearchIndexDescriptor index, String live, String target) {
+        @Override
+        public String toString() {
+            return live + " => " + target;
+        }
+    }
+
+    /**
+     * @return All generations of the given index, live or retained, by generation number.
+     */
+    static NavigableMap<Integer, String> generations(RestClient client, Gson gson, ElasticsearchIndexDescriptor index)
+            throws IOException {
+        var request = new Request("GET", "/_cat/indices/" + index.hibernateSearchName() + "-*");
+        request.addParameter("format", "json");
+        request.addParameter("h", "index");
+
+        NavigableMap<Integer, String> result = new TreeMap<>();
+        var response = client.performRequest(request);
+        try (var input = response.getEntity().getContent()) {
+            var responseBody = gson.fromJson(new InputStreamReader(input, StandardCharsets.UTF_8), JsonArray.class);
+            for (JsonElement element : responseBody) {
+                String name = element.getAsJsonObject().get("index").getAsString();
+                Integer generation = generationNumber(index, name);
+                if (generation != null) {
+                    result.put(generation, name);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Integer generationNumber(ElasticsearchIndexDescriptor index, String indexName) {
+        // See Hibernate Search's default index layout: <name>-<6 digits>.
+        String prefix = index.hibernateSearchName() + "-";
+        if (!indexName.startsWith(prefix)) {
+            return null;
+        }
+        String suffix = indexName.substring(prefix.length());
+        if (suffix.isEmpty() || !suffix.chars().allMatch(Character::isDigit)) {
+            return null;
+        }
+        return Integer.parseInt(suffix);
+    }
+
+    private static String generationName(ElasticsearchIndexDescriptor index, int generation) {
+        return "%s-%06d".formatted(index.hibernateSearchName(), generation);
     }
 
     /**
@@ -108,12 +287,17 @@ public class Rollover implements Closeable {
     private final RestClient client;
     private final Gson gson;
     private final List<IndexRolloverResult> indexRolloverResults;
+    private final IndexingConfig.BulkLoad bulkLoad;
+    private final int retainedGenerations;
     private boolean done;
 
-    private Rollover(RestClient client, Gson gson, List<IndexRolloverResult> indexRolloverResults) {
+    private Rollover(RestClient client, Gson gson, List<IndexRolloverResult> indexRolloverResults,
+            IndexingConfig.BulkLoad bulkLoad, int retainedGenerations) {
         this.client = client;
         this.gson = gson;
         this.indexRolloverResults = indexRolloverResults;
+        this.bulkLoad = bulkLoad;
+        this.retainedGenerations = retainedGenerations;
     }
 
     @Override
@@ -123,8 +307,16 @@ public class Rollover implements Closeable {
         }
     }
 
+    /**
+     * Commits the rollover, i.e. makes the new indexes live.
+     * <p>
+     * Callers are expected to have refreshed the new indexes beforehand.
+     */
     public void commit() {
-        commitAll(client, gson, indexRolloverResults);
+        if (bulkLoad != null) {
+            endBulkLoadAll(client, gson, indexRolloverResults, bulkLoad);
+        }
+        commitAll(client, gson, indexRolloverResults, retainedGenerations);
         done = true;
     }
 
@@ -133,10 +325,97 @@ public class Rollover implements Closeable {
         done = true;
     }
 
+    /**
+     * Copies documents from the index being replaced to the new index, server-side,
+     * so that they don't need to be extracted and sent again.
+     *
+     * @param entity The indexed entity whose documents should be copied.
+     * @param documentIds The identifiers of documents to copy.
+     * @param script A script to apply to copied documents, e.g. to restore fields excluded from {@code _source};
+     *        or {@code null}.
+     * @return The number of copied documents.
+     */
+    public long copyFromPreviousIndex(SearchIndexedEntity<?> entity, List<String> documentIds, JsonObject script) {
+        var indexName = entity.indexManager().unwrap(ElasticsearchIndexManager.class).descriptor().hibernateSearchName();
+        var rolloverResult = indexRolloverResults.stream()
+                .filter(r -> r.index.hibernateSearchName().equals(indexName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No rollover for index " + indexName));
+        long copied = 0L;
+        try {
+            for (int i = 0; i < documentIds.size(); i += COPY_BATCH_SIZE) {
+                copied += copy(client, gson, rolloverResult,
+                        documentIds.subList(i, Math.min(documentIds.size(), i + COPY_BATCH_SIZE)), script);
+            }
+        } catch (RuntimeException | IOException e) {
+            throw new IllegalStateException("Failed to copy documents from index '%s' to '%s': %s"
+                    .formatted(rolloverResult.oldIndex, rolloverResult.newIndex, e.getMessage()), e);
+        }
+        return copied;
+    }
+
+    private static long copy(RestClient client, Gson gson, IndexRolloverResult rolloverResult, List<String> documentIds,
+            JsonObject script) throws IOException {
+        var request = new Request("POST", "/_reindex");
+
+        JsonArray ids = new JsonArray();
+        documentIds.forEach(ids::add);
+        JsonObject idsQuery = new JsonObject();
+        idsQuery.add("values", ids);
+        JsonObject query = new JsonObject();
+        query.add("ids", idsQuery);
+        JsonObject source = new JsonObject();
+        source.addProperty("index", rolloverResult.oldIndex);
+        source.add("query", query);
+        JsonObject dest = new JsonObject();
+        dest.addProperty("index", rolloverResult.newIndex);
+        JsonObject body = new JsonObject();
+        body.add("source", source);
+        body.add("dest", dest);
+        if (script != null) {
+            body.add("script", script);
+        }
+
+        request.setEntity(new StringEntity(gson.toJson(body), ContentType.APPLICATION_JSON));
+        var response = client.performRequest(request);
+        try (var input = response.getEntity().getContent()) {
+            var responseBody = gson.fromJson(new InputStreamReader(input, StandardCharsets.UTF_8), JsonObject.class);
+            var failures = responseBody.getAsJsonArray("failures");
+            if (failures != null && !failures.isEmpty()) {
+                throw new IllegalStateException("Copy failed for some documents: " + failures);
+            }
+            return responseBody.get("created").getAsLong();
+        }
+    }
+
     private static IndexRolloverResult rollover(RestClient client, Gson gson, ElasticsearchIndexDescriptor index,
-            JsonObject mapping, JsonObject settings)
+            JsonObject mapping, JsonObject settings, boolean bulkLoading)
             throws IOException {
-        var request = new Request("POST", "/" + index.writeName() + "/_rollover");
+        // We name the new index explicitly: by default it would be named after the index targeted by the write alias,
+        // and after a rollback that name may be taken by a retained generation.
+        var generations = generations(client, gson, index);
+        var newIndexName = generationName(index, generations.isEmpty() ? 1 : generations.lastKey() + 1);
+        var request = new Request("POST", "/" + index.writeName() + "/_rollover/" + newIndexName);
+
+        JsonObject servingSettings = null;
+        if (bulkLoading) {
+            settings = settings.deepCopy();
+            // Null values reset settings to their default when restored.
+            servingSettings = new JsonObject();
+            for (String name : BULK_LOAD_SETTINGS) {
+                var value = removeSetting(settings, name);
+                servingSettings.add(name, value == null ? JsonNull.INSTANCE : value);
+            }
+            if (servingSettings.get("auto_expand_replicas").isJsonNull()) {
+                // Would be ignored, or worse, conflict with the explicit number of replicas.
+                servingSettings.remove("auto_expand_replicas");
+            } else {
+                // Derived from auto_expand_replicas.
+                servingSettings.remove("number_of_replicas");
+            }
+            settings.addProperty("refresh_interval", "-1");
+            settings.addProperty("number_of_replicas", 0);
+        }
 
         JsonObject body = new JsonObject();
         body.add("mappings", mapping);
@@ -152,11 +431,36 @@ public class Rollover implements Closeable {
         try (var input = response.getEntity().getContent()) {
             var responseBody = gson.fromJson(new InputStreamReader(input, StandardCharsets.UTF_8), JsonObject.class);
             return new IndexRolloverResult(index, responseBody.get("old_index").getAsString(),
-                    responseBody.get("new_index").getAsString());
+                    responseBody.get("new_index").getAsString(), servingSettings);
         }
     }
 
-    private record IndexRolloverResult(ElasticsearchIndexDescriptor index, String oldIndex, String newIndex) {
+    /**
+     * Removes a setting, whether it's expressed as {@code name}, {@code index.name}
+     * or {@code name} nested in {@code index}.
+     *
+     * @return The value of the removed setting, or {@code null}.
+     */
+    private static JsonElement removeSetting(JsonObject settings, String name) {
+        JsonElement value = settings.remove(name);
+        JsonElement prefixedValue = settings.remove("index." + name);
+        if (prefixedValue != null) {
+            value = prefixedValue;
+        }
+        if (settings.get("index") instanceof JsonObject nested) {
+            JsonElement nestedValue = nested.remove(name);
+            if (nestedValue != null) {
+                value = nestedValue;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @param servingSettings Settings to restore once bulk-loading is over, or {@code null} if not bulk-loading.
+     */
+    private record IndexRolloverResult(ElasticsearchIndexDescriptor index, String oldIndex, String newIndex,
+            JsonObject servingSettings) {
     }
 
     static Collection<GetAliasedResult> aliased(RestClient client, Gson gson,
@@ -199,6 +503,19 @@ public class Rollover implements Closeable {
         return resultsByReadAlias.values();
     }
 
+    /**
+     * @return The name of the index targeted by the write alias of the given index as its write index,
+     *         i.e. the new index during a rollover, or the live index otherwise.
+     */
+    static String writeIndex(RestClient client, Gson gson, ElasticsearchIndexDescriptor index) throws IOException {
+        var writeIndexes = aliased(client, gson, List.of(index)).iterator().next().writeAliasedIndexes();
+        if (writeIndexes.size() != 1) {
+            throw new IllegalStateException("Write alias '%s' must have exactly one write index, but has %s"
+                    .formatted(index.writeName(), writeIndexes));
+        }
+        return writeIndexes.iterator().next();
+    }
+
     static class GetAliasedResult {
         public final ElasticsearchIndexDescriptor index;
         private final Set<String> allAliasedIndexes = new TreeSet<>();
@@ -231,7 +548,65 @@ public class Rollover implements Closeable {
         }
     }
 
-    private static void commitAll(RestClient client, Gson gson, List<IndexRolloverResult> rollovers) {
+    private static void endBulkLoadAll(RestClient client, Gson gson, List<IndexRolloverResult> rollovers,
+            IndexingConfig.BulkLoad bulkLoad) {
+        var options = RequestOptions.DEFAULT.toBuilder()
+                // Force-merging and waiting for replicas may well take longer than the client's default timeout.
+                .setRequestConfig(RequestConfig.custom()
+                        .setSocketTimeout(Math.toIntExact(bulkLoad.timeout().plusSeconds(30).toMillis()))
+                        .build())
+                .build();
+        for (IndexRolloverResult rollover : rollovers) {
+            if (rollover.servingSettings == null) {
+                continue;
+            }
+            try {
+                endBulkLoad(client, gson, rollover, bulkLoad, options);
+            } catch (RuntimeException | IOException e) {
+                throw new IllegalStateException("Failed to restore serving settings on index '%s': %s"
+                        .formatted(rollover.newIndex, e.getMessage()), e);
+            }
+        }
+    }
+
+    private static void endBulkLoad(RestClient client, Gson gson, IndexRolloverResult rollover,
+            IndexingConfig.BulkLoad bulkLoad, RequestOptions options) throws IOException {
+        if (bulkLoad.maxSegments().isPresent()) {
+            // Before restoring replicas, so that they just copy merged segments.
+            Log.infof("Force-merging index '%s' to %d segments", rollover.newIndex, bulkLoad.maxSegments().getAsInt());
+            var forceMerge = new Request("POST", "/" + rollover.newIndex + "/_forcemerge");
+            forceMerge.addParameter("max_num_segments", String.valueOf(bulkLoad.maxSegments().getAsInt()));
+            forceMerge.setOptions(options);
+            client.performRequest(forceMerge);
+            client.performRequest(new Request("POST", "/" + rollover.newIndex + "/_refresh"));
+        }
+
+        Log.infof("Restoring serving settings on index '%s': %s", rollover.newIndex, rollover.servingSettings);
+        var putSettings = new Request("PUT", "/" + rollover.newIndex + "/_settings");
+        JsonObject body = new JsonObject();
+        body.add("index", rollover.servingSettings);
+        // Null values must be sent, as they reset settings to their default.
+        putSettings.setEntity(new StringEntity(gson.newBuilder().serializeNulls().create().toJson(body),
+                ContentType.APPLICATION_JSON));
+        client.performRequest(putSettings);
+
+        var health = new Request("GET", "/_cluster/health/" + rollover.newIndex);
+        health.addParameter("wait_for_status", "green");
+        health.addParameter("timeout", bulkLoad.timeout().toSeconds() + "s");
+        health.setOptions(options);
+        var response = client.performRequest(health);
+        try (var input = response.getEntity().getContent()) {
+            var responseBody = gson.fromJson(new InputStreamReader(input, StandardCharsets.UTF_8), JsonObject.class);
+            if (responseBody.get("timed_out").getAsBoolean()) {
+                // Primaries hold all the data: the index can serve searches, it's just not redundant yet.
+                Log.warnf("Index '%s' is still %s after %s; making it live anyway", rollover.newIndex,
+                        responseBody.get("status").getAsString(), bulkLoad.timeout());
+            }
+        }
+    }
+
+    private static void commitAll(RestClient client, Gson gson, List<IndexRolloverResult> rollovers,
+            int retainedGenerations) {
         Log.info("Committing index rollover");
         try {
             changeAliasesAtomically(client, gson, rollovers, rolloverResult -> {
@@ -239,13 +614,111 @@ public class Rollover implements Closeable {
                         "index", rolloverResult.newIndex,
                         "alias", rolloverResult.index.readName(),
                         "is_write_index", "false"));
-                JsonObject removeOldIndex = aliasAction("remove_index", Map.of(
-                        "index", rolloverResult.oldIndex));
-                return Stream.of(useNewIndexAsRead, removeOldIndex);
+                if (retainedGenerations <= 0) {
+                    return Stream.of(useNewIndexAsRead, aliasAction("remove_index", Map.of(
+                            "index", rolloverResult.oldIndex)));
+                }
+                // The rollover left the old index behind the write alias (as a non-write index):
+                // retained generations must not be affected by anything sent to that alias, e.g. mapping updates.
+                return Stream.of(useNewIndexAsRead,
+                        aliasAction("remove", Map.of(
+                                "index", rolloverResult.oldIndex,
+                                "alias", rolloverResult.index.readName())),
+                        aliasAction("remove", Map.of(
+                                "index", rolloverResult.oldIndex,
+                                "alias", rolloverResult.index.writeName())));
             });
         } catch (RuntimeException | IOException e) {
             throw new IllegalStateException("Failed to commit rollover: " + e.getMessage(), e);
         }
+        if (retainedGenerations <= 0) {
+            return;
+        }
+        // The rollover is committed at this point: failures are not critical, and must not trigger a rollback.
+        for (IndexRolloverResult rollover : rollovers) {
+            try {
+                retain(client, gson, rollover.oldIndex);
+                deleteGenerationsBeyondRetention(client, gson, rollover.index, retainedGenerations);
+            } catch (RuntimeException | IOException e) {
+                Log.warnf(e, "Failed to apply retention policy to generations of index '%s': %s",
+                        rollover.index.hibernateSearchName(), e.getMessage());
+            }
+        }
+    }
+
+    private static void retain(RestClient client, Gson gson, String indexName) throws IOException {
+        Log.infof("Retaining index '%s' as a read-only generation", indexName);
+        // Record when the index stopped being live, see deleteGenerationsBeyondRetention.
+        // Must happen before the write block: _meta is replaced as a whole, so we need to merge it with existing metadata.
+        var meta = metas(client, gson, indexName).getOrDefault(indexName, new JsonObject());
+        meta.addProperty(RETIRED_META_KEY, Instant.now().toString());
+        var body = new JsonObject();
+        body.add("_meta", meta);
+        var request = new Request("PUT", "/" + indexName + "/_mapping");
+        request.setEntity(new StringEntity(gson.toJson(body), ContentType.APPLICATION_JSON));
+        client.performRequest(request);
+        setWriteBlock(client, gson, indexName, true);
+    }
+
+    /**
+     * @return The {@code _meta} of the mapping of indexes matching the given pattern, by index name;
+     *         indexes without {@code _meta} are absent from the map.
+     */
+    static Map<String, JsonObject> metas(RestClient client, Gson gson, String indexPattern) throws IOException {
+        var request = new Request("GET", "/" + indexPattern + "/_mapping");
+        request.addParameter("filter_path", "*.mappings._meta");
+        Map<String, JsonObject> result = new HashMap<>();
+        var response = client.performRequest(request);
+        try (var input = response.getEntity().getContent()) {
+            var responseBody = gson.fromJson(new InputStreamReader(input, StandardCharsets.UTF_8), JsonObject.class);
+            if (responseBody == null) {
+                return result;
+            }
+            for (var entry : responseBody.entrySet()) {
+                var mappings = entry.getValue().getAsJsonObject().getAsJsonObject("mappings");
+                var meta = mappings == null ? null : mappings.getAsJsonObject("_meta");
+                if (meta != null) {
+                    result.put(entry.getKey(), meta);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Instant retiredAt(JsonObject meta) {
+        var retiredAt = meta == null ? null : meta.get(RETIRED_META_KEY);
+        // Generations retained before we started recording this are the oldest.
+        return retiredAt == null ? Instant.MIN : Instant.parse(retiredAt.getAsString());
+    }
+
+    private static void setWriteBlock(RestClient client, Gson gson, String indexName, boolean blocked)
+            throws IOException {
+        var request = new Request("PUT", "/" + indexName + "/_settings");
+        JsonObject body = new JsonObject();
+        body.addProperty("index.blocks.write", blocked);
+        request.setEntity(new StringEntity(gson.toJson(body), ContentType.APPLICATION_JSON));
+        client.performRequest(request);
+    }
+
+    private static void deleteGenerationsBeyondRetention(RestClient client, Gson gson,
+            ElasticsearchIndexDescriptor index, int retainedGenerations) throws IOException {
+        var aliasedIndexes = aliased(client, gson, List.of(index)).iterator().next().allAliasedIndexes;
+        var metas = metas(client, gson, index.hibernateSearchName() + "-*");
+        // Most recently live first: those are the most likely to be useful for a rollback.
+        // After a rollback, that's not the highest generation number: that one is the generation we rolled back from.
+        Comparator<Map.Entry<Integer, String>> mostRecentlyLiveFirst = Comparator
+                .comparing((Map.Entry<Integer, String> generation) -> retiredAt(metas.get(generation.getValue())))
+                .thenComparing(Map.Entry::getKey)
+                .reversed();
+        var candidates = generations(client, gson, index).entrySet().stream()
+                .filter(generation -> !aliasedIndexes.contains(generation.getValue()))
+                .sorted(mostRecentlyLiveFirst)
+                .map(Map.Entry::getValue)
+                .toList();
+        for (String indexName : candidates.subList(Math.min(retainedGenerations, candidates.size()), candidates.size())) {
+            Log.infof("Deleting index '%s' beyond retention of %d generations", indexName, retainedGenerations);
+            client.performRequest(new Request("DELETE", "/" + indexName));
+        }
     }
 
     private static void rollbackAll(RestClient client, Gson gson, List<IndexRolloverResult> rollovers) {
@@ -0,0 +1,110 @@
+package io.quarkus.search.app.indexing;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Set;
+
+import io.quarkus.search.app.entity.Guide;
+
+import org.hibernate.search.backend.elasticsearch.ElasticsearchBackend;
+import org.hibernate.search.backend.elasticsearch.index.ElasticsearchIndexManager;
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
+
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+/**
+ * Deletes documents of a slice of guides that were not indexed again, i.e. that no longer exist,
+ * through a delete-by-query restricted to the routing keys of that slice.
+ */
+final class StaleDocuments {
+
+    private StaleDocuments() {
+    }
+
+    /**
+     * @param searchMapping The Hibernate Search mapping.
+     * @param routingKeys The routing keys of documents in the slice,
+     *        see {@link io.quarkus.search.app.entity.QuarkusVersionAndLanguageRoutingBinder#key}.
+     * @param origins The origins of documents in the slice, or an empty set for all origins.
+     * @param keptIds The identifiers of documents to keep, i.e. that were just indexed again.
+     * @return The number of deleted documents.
+     */
+    static long delete(SearchMapping searchMapping, Set<String> routingKeys, Set<String> origins,
+            Collection<String> keptIds) {
+        if (routingKeys.isEmpty()) {
+            return 0L;
+        }
+        var gson = new Gson();
+        var client = searchMapping.backend().unwrap(ElasticsearchBackend.class).client(RestClient.class);
+        var index = searchMapping.indexedEntity(Guide.class).indexManager()
+                .unwrap(ElasticsearchIndexManager.class).descriptor();
+        String writeIndex;
+        try {
+            writeIndex = Rollover.writeIndex(client, gson, index);
+        } catch (RuntimeException | IOException e) {
+            throw new IllegalStateException("Failed to resolve the write index of '%s': %s"
+                    .formatted(index.hibernateSearchName(), e.getMessage()), e);
+        }
+        // Not the write alias: it may target other indexes as well, e.g. generations retained by older versions
+        // of this application, which are write-blocked and must be left untouched anyway.
+        var request = new Request("POST", "/" + writeIndex + "/_delete_by_query");
+        // Only hit the shards where documents of the slice live.
+        request.addParameter("routing", String.join(",", routingKeys));
+        // A conflict means the document was just indexed again, so we must keep it anyway.
+        request.addParameter("conflicts", "proceed");
+
+        JsonArray filters = new JsonArray();
+        filters.add(terms("_routing", routingKeys));
+        if (!origins.isEmpty()) {
+            filters.add(terms("origin", origins));
+        }
+        JsonArray ids = new JsonArray();
+        keptIds.forEach(ids::add);
+        JsonObject idsQuery = new JsonObject();
+        idsQuery.add("values", ids);
+        JsonObject mustNot = new JsonObject();
+        mustNot.add("ids", idsQuery);
+        JsonObject bool = new JsonObject();
+        bool.add("filter", filters);
+        bool.add("must_not", mustNot);
+        JsonObject query = new JsonObject();
+        query.add("bool", bool);
+        JsonObject body = new JsonObject();
+        body.add("query", query);
+
+        request.setEntity(new StringEntity(gson.toJson(body), ContentType.APPLICATION_JSON));
+        try {
+            var response = client.performRequest(request);
+            try (var input = response.getEntity().getContent()) {
+                var responseBody = gson.fromJson(new InputStreamReader(input, StandardCharsets.UTF_8), JsonObject.class);
+                var failures = responseBody.getAsJsonArray("failures");
+                if (failures != null && !failures.isEmpty()) {
+                    throw new IllegalStateException("Deletion failed for some documents: " + failures);
+                }
+                return responseBody.get("deleted").getAsLong();
+            }
+        } catch (RuntimeException | IOException e) {
+            throw new IllegalStateException("Failed to delete stale documents with routing keys %s: %s"
+                    .formatted(routingKeys, e.getMessage()), e);
+        }
+    }
+
+    private static JsonObject terms(String field, Collection<String> values) {
+        JsonArray array = new JsonArray();
+        values.forEach(array::add);
+        JsonObject fieldTerms = new JsonObject();
+        fieldTerms.add(field, array);
+        JsonObject terms = new JsonObject();
+        terms.add("terms", fieldTerms);
+        return terms;
+    }
+}
@@ -0,0 +1,63 @@
+package io.quarkus.search.app.quarkusio;
+
+import java.util.Set;
+
+import io.quarkus.search.app.entity.Guide;
+import io.quarkus.search.app.entity.Language;
+
+/**
+ * A subset of guides, e.g. for partial reindexing.
+ * <p>
+ * An empty set of versions (respectively languages, origins) means all versions (respectively languages, origins).
+ * Guides without a language, i.e. Quarkiverse guides, whose content is not translated, are considered English.
+ *
+ * @param versions The Quarkus versions of guides in this slice.
+ * @param languages The languages of guides in this slice.
+ * @param origins The origins of guides in this slice, e.g. {@code quarkus} or {@code quarkiverse}.
+ */
+public record GuideSlice(Set<String> versions, Set<Language> languages, Set<String> origins) {
+
+    public static final GuideSlice ALL = new GuideSlice(Set.of(), Set.of(), Set.of());
+
+    public GuideSlice {
+        versions = Set.copyOf(versions);
+        languages = Set.copyOf(languages);
+        origins = Set.copyOf(origins);
+    }
+
+    public boolean isAll() {
+        return versions.isEmpty() && languages.isEmpty() && origins.isEmpty();
+    }
+
+    public boolean includesVersion(String version) {
+        return versions.isEmpty() || versions.contains(version);
+    }
+
+    public boolean includesLanguage(Language language) {
+        return languages.isEmpty() || languages.contains(language == null ? Language.ENGLISH : language);
+    }
+
+    public boolean includesOrigin(String origin) {
+        return origins.isEmpty() || origins.contains(origin);
+    }
+
+    public boolean includes(Guide guide) {
+        return includesVersion(guide.quarkusVersion) && includesLanguage(guide.language)
+                && includesOrigin(guide.origin);
+    }
+
+    /**
+     * @return Whether guides in this slice may need the site of the given language:
+     *         guides without a language get metadata translations from all sites.
+     */
+    public boolean requiresSite(Language language) {
+        return includesLanguage(language) || includesLanguage(null);
+    }
+
+    @Override
+    public String toString() {
+        return "{versions=" + (versions.isEmpty() ? "all" : versions)
+                + ", languages=" + (languages.isEmpty() ? "all" : languages)
+                + ", origins=" + (origins.isEmpty() ? "all" : origins) + "}";
+    }
+}
@@ -17,9 +17,13 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -28,11 +32,11 @@ import io.quarkus.search.app.entity.Guide;
 import io.quarkus.search.app.entity.I18nData;
 import io.quarkus.search.app.entity.Language;
 import io.quarkus.search.app.indexing.FailureCollector;
-import io.quarkus.search.app.util.CloseableDirectory;
 import io.quarkus.search.app.util.GitCloneDirectory;
 import io.quarkus.search.app.util.GitInputProvider;
 import io.quarkus.search.app.util.GitUtils;
 import io.quarkus.search.app.util.UrlInputProvider;
+import io.quarkus.search.app.util.UrlPrefetcher;
 
 import org.hibernate.search.util.common.impl.Closer;
 
@@ -83,18 +87,31 @@ public class QuarkusIO implements Closeable {
         return Path.of("_data", "versioned", version.replace('.', '-'), "index", "quarkiverse.yaml");
     }
 
+    private static final String SOURCES_REVISION = "sources";
+    private static final String PAGES_REVISION = "pages";
+    private static final String UPSTREAM_REVISION = "upstream";
+    // Matches both metadata files (_data/...) and their translations (l10n/po/<locale>/_data/...)
+    private static final Pattern VERSIONED_METADATA_PATH = Pattern.compile("_data/versioned/([^/]+)/index/");
+    private static final Pattern LEGACY_METADATA_PATH = Pattern.compile("_data/guides-(\\d+-\\d+)\\.yaml");
+
     private final Map<Language, GitCloneDirectory> allSites;
     private final Map<Language, URI> siteUris;
-    private final CloseableDirectory prefetchedGuides = CloseableDirectory.temp("quarkiverse-guides-");
+    private final UrlPrefetcher quarkiverseGuidePrefetcher;
     private final FailureCollector failureCollector;
 
+    /**
+     * @param quarkiverseGuidePrefetcher The prefetcher to download content of Quarkiverse guides with;
+     *        closed along with this object.
+     */
     public QuarkusIO(QuarkusIOConfig config, GitCloneDirectory mainRepository,
-            Map<Language, GitCloneDirectory> localizedSites, FailureCollector failureCollector) throws IOException {
+            Map<Language, GitCloneDirectory> localizedSites, UrlPrefetcher quarkiverseGuidePrefetcher,
+            FailureCollector failureCollector) throws IOException {
         HashMap<Language, URI> languageUriMap = new HashMap<>(localizedSites.entrySet().stream()
                 .collect(Collectors.toMap(Map.Entry::getKey, e -> config.localized().get(e.getKey().code).webUri())));
         languageUriMap.put(Language.ENGLISH, config.webUri());
         this.siteUris = Collections.unmodifiableMap(languageUriMap);
         this.failureCollector = failureCollector;
+        this.quarkiverseGuidePrefetcher = quarkiverseGuidePrefetcher;
 
         Map<Language, GitCloneDirectory> all = new HashMap<>(localizedSites);
         all.put(Language.ENGLISH, mainRepository);
@@ -143,20 +160,124 @@ public class QuarkusIO implements Closeable {
     @Override
     public void close() throws IOException {
         try (var closer = new Closer<IOException>()) {
-            closer.push(CloseableDirectory::close, prefetchedGuides);
+            closer.push(UrlPrefetcher::close, quarkiverseGuidePrefetcher);
             closer.pushAll(GitCloneDirectory::close, allSites.values());
         }
     }
 
+    /**
+     * @return The hashes of the commits guides are extracted from, for each site,
+     *         to be recorded along with the indexes and later passed to {@link #changedGuidesSince(Map)}.
+     */
+    public Map<String, String> revisions() {
+        Map<String, String> revisions = new TreeMap<>();
+        for (Map.Entry<Language, GitCloneDirectory> entry : allSites.entrySet()) {
+            Language language = entry.getKey();
+            GitCloneDirectory site = entry.getValue();
+            revisions.put(revisionKey(language, SOURCES_REVISION), site.currentSourcesLatestHash().name());
+            revisions.put(revisionKey(language, PAGES_REVISION), site.currentPagesLatestHash().name());
+            if (!Language.ENGLISH.equals(language)) {
+                // Metadata of localized sites comes from the main repository, at the commit the submodule points to.
+                site.currentUpstreamSubmoduleSourcesHash().ifPresent(
+                        hash -> revisions.put(revisionKey(language, UPSTREAM_REVISION), hash.name()));
+            }
+        }
+        return revisions;
+    }
+
+    /**
+     * @param previousRevisions Revisions returned by {@link #revisions()} on a previous run.
+     * @return A predicate matching guides returned by {@link #guides()}
+     *         that may have changed since the given revisions,
+     *         or an empty optional if changes cannot be determined
+     *         (sites were added/removed, commits cannot be found, ...).
+     */
+    public Optional<Predicate<Guide>> changedGuidesSince(Map<String, String> previousRevisions) {
+        Map<String, String> currentRevisions = revisions();
+        if (!currentRevisions.keySet().equals(previousRevisions.keySet())) {
+            return Optional.empty();
+        }
+        GitCloneDirectory mainRepository = allSites.get(Language.ENGLISH);
+        // Metadata (YAML and translations) changes affect guides of all languages, for simplicity.
+        Set<String> changedMetadataPaths = new HashSet<>();
+        Map<Language, Set<String>> changedPagesPaths = new HashMap<>();
+        for (Map.Entry<Language, GitCloneDirectory> entry : allSites.entrySet()) {
+            Language language = entry.getKey();
+            GitCloneDirectory site = entry.getValue();
+            var sourcesKey = revisionKey(language, SOURCES_REVISION);
+            var pagesKey = revisionKey(language, PAGES_REVISION);
+            var upstreamKey = revisionKey(language, UPSTREAM_REVISION);
+            var changedSources = site.changedPaths(previousRevisions.get(sourcesKey), currentRevisions.get(sourcesKey));
+            var changedPages = site.changedPaths(previousRevisions.get(pagesKey), currentRevisions.get(pagesKey));
+            var changedUpstream = currentRevisions.containsKey(upstreamKey)
+                    ? mainRepository.changedPaths(previousRevisions.get(upstreamKey), currentRevisions.get(upstreamKey))
+                    : Optional.of(Set.<String> of());
+            if (changedSources.isEmpty() || changedPages.isEmpty() || changedUpstream.isEmpty()) {
+                return Optional.empty();
+            }
+            changedMetadataPaths.addAll(changedSources.get());
+            changedMetadataPaths.addAll(changedUpstream.get());
+            changedPagesPaths.put(language, changedPages.get());
+        }
+        Set<String> changedMetadataVersionDirectories = new HashSet<>();
+        for (String path : changedMetadataPaths) {
+            versionDirectory(path).ifPresent(changedMetadataVersionDirectories::add);
+        }
+        return Optional.of(guide -> {
+            if (changedMetadataVersionDirectories.contains(guide.quarkusVersion.replace('.', '-'))) {
+                return true;
+            }
+            if (guide.language == null) {
+                // Quarkiverse guide: content is not in git, so we can't know whether it changed.
+                // It gets fetched and hashed anyway, so unchanged guides will be skipped based on their hash.
+                return true;
+            }
+            return guide.htmlFullContentProvider.get(guide.language) instanceof GitInputProvider provider
+                    && changedPagesPaths.getOrDefault(guide.language, Set.of()).contains(provider.path());
+        });
+    }
+
+    private static String revisionKey(Language language, String revision) {
+        return language.code + "/" + revision;
+    }
+
+    private static Optional<String> versionDirectory(String metadataPath) {
+        var matcher = VERSIONED_METADATA_PATH.matcher(metadataPath);
+        if (matcher.find()) {
+            return Optional.of(matcher.group(1));
+        }
+        matcher = LEGACY_METADATA_PATH.matcher(metadataPath);
+        if (matcher.find()) {
+            return Optional.of(matcher.group(1));
+        }
+        return Optional.empty();
+    }
+
     public Stream<Guide> guides() throws IOException {
+        return guides(GuideSlice.ALL);
+    }
+
+    /**
+     * @param slice The guides to return; metadata of other guides is not even parsed, as far as possible.
+     * @return Guides in the given slice.
+     */
+    public Stream<Guide> guides(GuideSlice slice) throws IOException {
+        // Quarkiverse guides get prefetched while parsing their metadata, which is expensive:
+        // we skip them altogether when they cannot be part of the slice.
+        boolean mayIncludeQuarkiverse = slice.includesLanguage(null)
+                && (slice.origins().isEmpty() || !slice.origins().equals(Set.of(QUARKUS_ORIGIN)));
         return Stream.concat(
-                Stream.concat(versionedGuides(), legacyGuides()),
-                Stream.concat(quarkiverseGuides(), legacyQuarkiverseGuides()));
+                Stream.concat(versionedGuides(slice), legacyGuides(slice)),
+                mayIncludeQuarkiverse
+                        ? Stream.concat(quarkiverseGuides(slice), legacyQuarkiverseGuides(slice))
+                        : Stream.<Guide> empty())
+                .filter(slice::includes);
     }
 
     // guides based on the info from the _data/versioned/[version]/index/
-    private Stream<Guide> versionedGuides() {
+    private Stream<Guide> versionedGuides(GuideSlice slice) {
         return allSites.entrySet().stream()
+                .filter(entry -> slice.includesLanguage(entry.getKey()))
                 .flatMap(entry -> {
                     Language language = entry.getKey();
                     GitCloneDirectory cloneDirectory = entry.getValue();
@@ -165,6 +286,7 @@ public class QuarkusIO implements Closeable {
 
                     return cloneDirectory.sourcesFileStream("_data/versioned", path -> path.endsWith("quarkus.yaml"))
                             .map(QuarkusIO::extractVersion)
+                            .filter(quarkusVersion -> slice.includesVersion(quarkusVersion.version()))
                             .flatMap(quarkusVersion -> {
                                 String quarkus = quarkusVersion.path();
 
@@ -186,8 +308,9 @@ public class QuarkusIO implements Closeable {
     }
 
     // older version guides like guides-2-7.yaml or guides-2-13.yaml
-    private Stream<Guide> legacyGuides() {
+    private Stream<Guide> legacyGuides(GuideSlice slice) {
         return allSites.entrySet().stream()
+                .filter(entry -> slice.includesLanguage(entry.getKey()))
                 .flatMap(entry -> {
                     Language language = entry.getKey();
                     GitCloneDirectory cloneDirectory = entry.getValue();
@@ -196,6 +319,7 @@ public class QuarkusIO implements Closeable {
 
                     return cloneDirectory.sourcesFileStream("_data", path -> path.matches("_data/guides-\\d+-\\d+\\.yaml"))
                             .map(QuarkusIO::extractLegacyVersion)
+                            .filter(quarkusVersion -> slice.includesVersion(quarkusVersion.version()))
                             .flatMap(quarkusVersion -> {
                                 String quarkus = quarkusVersion.path();
 
@@ -215,12 +339,13 @@ public class QuarkusIO implements Closeable {
                 });
     }
 
-    private Stream<Guide> quarkiverseGuides() {
+    private Stream<Guide> quarkiverseGuides(GuideSlice slice) {
         Language language = Language.ENGLISH;
         GitCloneDirectory cloneDirectory = allSites.get(language);
 
         return cloneDirectory.sourcesFileStream("_data/versioned", path -> path.endsWith("quarkiverse.yaml"))
                 .map(QuarkusIO::extractQuarkiverseVersion)
+                .filter(quarkusVersion -> slice.includesVersion(quarkusVersion.version()))
                 .flatMap(quarkusVersion -> {
                     String quarkus = quarkusVersion.path();
 
@@ -237,12 +362,13 @@ public class QuarkusIO implements Closeable {
                 });
     }
 
-    private Stream<Guide> legacyQuarkiverseGuides() {
+    private Stream<Guide> legacyQuarkiverseGuides(GuideSlice slice) {
         Language language = Language.ENGLISH;
         GitCloneDirectory cloneDirectory = allSites.get(language);
 
         return cloneDirectory.sourcesFileStream("_data", path -> path.matches("_data/guides-\\d+-\\d+\\.yaml"))
                 .map(QuarkusIO::extractLegacyVersion)
+                .filter(quarkusVersion -> slice.includesVersion(quarkusVersion.version()))
                 .flatMap(quarkusVersion -> {
                     String quarkus = quarkusVersion.path();
 
@@ -547,7 +673,7 @@ public class QuarkusIO implements Closeable {
         String parsedUrl = toString(parsedGuide.get("url"));
         guide.url = httpUrl(quarkusVersion, parsedUrl);
         guide.htmlFullContentProvider.set(Language.ENGLISH,
-                new UrlInputProvider(prefetchedGuides, guide.url, failureCollector));
+                new UrlInputProvider(guide.url, quarkiverseGuidePrefetcher.prefetch(guide.url)));
         return guide;
     }
 
@@ -0,0 +1,340 @@
+package io.quarkus.search.app.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.quarkus.logging.Log;
+
+import org.hibernate.search.util.common.impl.Closer;
+import org.hibernate.search.util.common.impl.SuppressingCloser;
+
+/**
+ * An append-only, content-addressed store of blobs on disk:
+ * content gets appended to a single pack file, and located through an index file,
+ * so that identical content is stored only once, and storing many blobs doesn't require many files.
+ * <p>
+ * Blobs are read through memory-mapped slices of the pack file.
+ * <p>
+ * A blob only gets recorded in the index after its content was written to the pack;
+ * on opening an existing store, index records pointing beyond the end of the pack are dropped,
+ * and blobs from previous runs get their content checked against their id before first use.
+ * <p>
+ * Blobs are never removed from an open store: {@link #compact(Path, Set)} rewrites a closed store
+ * with only the blobs still referenced, so that the pack doesn't grow without bound across runs.
+ */
+public final class BlobStore implements Closeable {
+
+    private static final String PACK_FILE = "blobs.pack";
+    private static final String INDEX_FILE = "blobs.idx";
+    // SHA-256
+    private static final int ID_LENGTH = 32;
+    // Id, offset, length
+    private static final int RECORD_LENGTH = ID_LENGTH + 2 * Long.BYTES;
+
+    /**
+     * @param directory The directory containing the store; files get created if they don't exist.
+     * @return The store, containing any blob written to the same directory previously.
+     */
+    public static BlobStore open(Path directory) throws IOException {
+        FileChannel pack = null;
+        FileChannel index = null;
+        try {
+            pack = FileChannel.open(directory.resolve(PACK_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = FileChannel.open(directory.resolve(INDEX_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new BlobStore(directory, pack, index);
+        } catch (RuntimeException | IOException e) {
+            new SuppressingCloser(e).push(pack).push(index);
+            throw e;
+        }
+    }
+
+    /**
+     * Rewrites the store in the given directory with only the given blobs, dropping all others.
+     * <p>
+     * The store must not be open while this executes.
+     *
+     * @param directory The directory containing the store.
+     * @param retainedIds The ids of blobs to retain; ids of blobs that are not in the store are ignored.
+     */
+    public static void compact(Path directory, Set<String> retainedIds) throws IOException {
+        Path packFile = directory.resolve(PACK_FILE);
+        Path indexFile = directory.resolve(INDEX_FILE);
+        Path temporaryPackFile = directory.resolve(PACK_FILE + ".tmp");
+        Path temporaryIndexFile = directory.resolve(INDEX_FILE + ".tmp");
+        try (BlobStore store = open(directory)) {
+            List<Blob> retained = new ArrayList<>();
+            long retainedSize = 0L;
+            for (Blob blob : store.blobs.values()) {
+                if (retainedIds.contains(blob.id)) {
+                    retained.add(blob);
+                    retainedSize += blob.length;
+                }
+            }
+            if (retained.size() == store.blobs.size() && retainedSize == store.pack.size()) {
+                // Nothing to drop.
+                return;
+            }
+            Log.infof("Compacting blob store '%s': retaining %d blobs out of %d", directory,
+                    retained.size(), store.blobs.size());
+            // Keep blobs in the same order, so that content that was fetched together stays together.
+            retained.sort(Comparator.comparingLong(blob -> blob.offset));
+            try (var newPack = FileChannel.open(temporaryPackFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                    var newIndex = FileChannel.open(temporaryIndexFile, StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                long offset = 0L;
+                ByteBuffer record = ByteBuffer.allocate(RECORD_LENGTH);
+                for (Blob blob : retained) {
+                    writeFully(newPack, blob.map(), offset);
+                    record.clear()
+                            .put(HexFormat.of().parseHex(blob.id))
+                            .putLong(offset)
+                            .putLong(blob.length)
+                            .flip();
+                    writeFully(newIndex, record, newIndex.size());
+                    offset += blob.length;
+                }
+                newPack.force(true);
+                newIndex.force(true);
+            }
+        } catch (RuntimeException | IOException e) {
+            Files.deleteIfExists(temporaryPackFile);
+            Files.deleteIfExists(temporaryIndexFile);
+            throw e;
+        }
+        // The two files cannot be replaced atomically together.
+        // Should we crash in-between, records of the old index would point beyond the end of the new pack
+        // or to mismatching content, which gets dropped on opening or detected on first use (see #get):
+        // blobs would simply be stored again.
+        Files.move(temporaryPackFile, packFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.move(temporaryIndexFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private final Path directory;
+    private final FileChannel pack;
+    private final FileChannel index;
+    // Guarded by this
+    private final Map<String, Blob> blobs = new HashMap<>();
+
+    private BlobStore(Path directory, FileChannel pack, FileChannel index) throws IOException {
+        this.directory = directory;
+        this.pack = pack;
+        this.index = index;
+        load();
+    }
+
+    private void load() throws IOException {
+        long packSize = pack.size();
+        ByteBuffer records = ByteBuffer.allocate(Math.toIntExact(index.size()));
+        readFully(index, records, 0L);
+        records.flip();
+        long validIndexSize = 0L;
+        long validPackSize = 0L;
+        byte[] idBytes = new byte[ID_LENGTH];
+        while (records.remaining() >= RECORD_LENGTH) {
+            records.get(idBytes);
+            long offset = records.getLong();
+            long length = records.getLong();
+            if (offset < 0 || length < 0 || length > Integer.MAX_VALUE || offset + length > packSize) {
+                // Interrupted while writing; blobs are appended in order, so nothing valid can follow.
+                break;
+            }
+            String id = HexFormat.of().formatHex(idBytes);
+            blobs.put(id, new Blob(id, offset, (int) length, false));
+            validIndexSize += RECORD_LENGTH;
+            validPackSize = Math.max(validPackSize, offset + length);
+        }
+        if (validIndexSize < index.size() || validPackSize < packSize) {
+            Log.infof("Truncating partially written content in blob store '%s'", directory);
+            index.truncate(validIndexSize);
+            pack.truncate(validPackSize);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (var closer = new Closer<IOException>()) {
+            closer.push(FileChannel::close, pack);
+            closer.push(FileChannel::close, index);
+        }
+    }
+
+    /**
+     * Stores the given content, unless identical content was stored already.
+     *
+     * @param content The content to store.
+     * @return The blob holding that content.
+     */
+    public synchronized Blob put(byte[] content) throws IOException {
+        byte[] idBytes = sha256(ByteBuffer.wrap(content));
+        String id = HexFormat.of().formatHex(idBytes);
+        Blob existing = get(id);
+        if (existing != null) {
+            return existing;
+        }
+        long offset = pack.size();
+        writeFully(pack, ByteBuffer.wrap(content), offset);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_LENGTH)
+                .put(idBytes)
+                .putLong(offset)
+                .putLong(content.length)
+                .flip();
+        writeFully(index, record, index.size());
+        Blob blob = new Blob(id, offset, content.length, true);
+        blobs.put(id, blob);
+        return blob;
+    }
+
+    /**
+     * @param id The id of a blob, i.e. the hex-encoded SHA-256 hash of its content.
+     * @return The blob with that id, or {@code null} if there is none, or if its content got corrupted.
+     */
+    public synchronized Blob get(String id) throws IOException {
+        Blob blob = blobs.get(id);
+        if (blob == null || blob.verified) {
+            return blob;
+        }
+        if (!id.equals(HexFormat.of().formatHex(sha256(blob.map())))) {
+            Log.warnf("Ignoring corrupted blob '%s' in blob store '%s'", id, directory);
+            // The content will simply be stored again when needed.
+            blobs.remove(id);
+            return null;
+        }
+        blob.verified = true;
+        return blob;
+    }
+
+    private static byte[] sha256(ByteBuffer content) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(content);
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available: " + e.getMessage(), e);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                break;
+            }
+            position += read;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BlobStore{" +
+                "directory=" + directory +
+                '}';
+    }
+
+    public final class Blob {
+        private final String id;
+        private final long offset;
+        private final int length;
+        // Guarded by the enclosing store
+        private boolean verified;
+
+        private Blob(String id, long offset, int length, boolean verified) {
+            this.id = id;
+            this.offset = offset;
+            this.length = length;
+            this.verified = verified;
+        }
+
+        /**
+         * @return The hex-encoded SHA-256 hash of the content of this blob.
+         */
+        public String id() {
+            return id;
+        }
+
+        public long size() {
+            return length;
+        }
+
+        /**
+         * @return A stream reading content directly from a memory-mapped slice of the pack file.
+         */
+        public InputStream open() throws IOException {
+            return new ByteBufferInputStream(map());
+        }
+
+        private ByteBuffer map() throws IOException {
+            return pack.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        }
+
+        @Override
+        public String toString() {
+            return "Blob{" +
+                    "id='" + id + '\'' +
+                    ", size=" + length +
+                    '}';
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.max(0L, Math.min(count, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -24,10 +24,12 @@ import org.hibernate.search.util.common.impl.SuppressingCloser;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.revwalk.RevTree;
-import org.eclipse.jgit.submodule.SubmoduleStatus;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.jboss.logging.Logger;
 
 public class GitCloneDirectory implements Closeable {
@@ -46,8 +48,9 @@ public class GitCloneDirectory implements Closeable {
                     .setNoTags()
                     .setBranch(branches.sources())
                     .setBranchesToClone(branches.asRefList())
+                    // Content is only ever read from git objects: a working tree would just waste I/O and disk space.
+                    .setNoCheckout(true)
                     .setProgressMonitor(LoggerProgressMonitor.create(log, "Cloning " + gitUri + ": "))
-                    // Unfortunately sparse checkouts are not supported: https://www.eclipse.org/forums/index.php/t/1094825/
                     .call();
             return new GitCloneDirectory(git, details, remoteName);
         } catch (RuntimeException | GitAPIException e) {
@@ -63,8 +66,19 @@ public class GitCloneDirectory implements Closeable {
         return details.openAndUpdate();
     }
 
+    /**
+     * Opens an existing clone without updating it, e.g. to check it's still usable before fetching into it.
+     *
+     * @see #update()
+     */
+    public static GitCloneDirectory open(Path directory, Branches branches) {
+        var details = new Details(directory, branches);
+        return details.open();
+    }
+
     private static final Logger log = Logger.getLogger(GitCloneDirectory.class);
     private static final List<String> ORDERED_REMOTES = Arrays.asList("upstream", "origin");
+    private static final String UPSTREAM_SUBMODULE_PATH = "upstream";
 
     private GitCloneDirectory root;
     private final Git git;
@@ -176,12 +190,102 @@ public class GitCloneDirectory implements Closeable {
     }
 
     public ObjectId currentSourcesLatestHash() {
+        return latestHash(details().branches().sources(), "sources");
+    }
+
+    public ObjectId currentPagesLatestHash() {
+        return latestHash(details().branches().pages(), "pages");
+    }
+
+    /**
+     * @return The URI of the remote this clone fetches from, or an empty optional if there is no remote.
+     */
+    public Optional<String> remoteUri() {
+        if (remoteName == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(git.getRepository().getConfig().getString("remote", remoteName, "url"));
+    }
+
+    /**
+     * Fetches changes from the remote, if any.
+     */
+    public void update() {
+        if (remoteName != null) {
+            details.update(git, remoteName);
+        }
+    }
+
+    /**
+     * Checks that branches of this clone resolve and that all objects in their trees are present,
+     * e.g. to detect a clone left corrupted by a process killed during a fetch.
+     *
+     * @throws IllegalStateException If this clone is corrupted.
+     */
+    public void verifyIntegrity() {
+        var repository = git.getRepository();
+        try (ObjectReader reader = repository.newObjectReader()) {
+            for (String branch : List.of(details.branches().sources(), details.branches().pages())) {
+                ObjectId head = latestHash(branch, branch);
+                if (head == null) {
+                    throw new IllegalStateException("Branch '%s' is missing".formatted(branch));
+                }
+                try (TreeWalk treeWalk = new TreeWalk(reader)) {
+                    treeWalk.addTree(revTree(repository, head));
+                    treeWalk.setRecursive(true);
+                    while (treeWalk.next()) {
+                        // Submodules point to commits in other repositories.
+                        if (!FileMode.GITLINK.equals(treeWalk.getFileMode(0))
+                                && !reader.has(treeWalk.getObjectId(0))) {
+                            throw new IllegalStateException("Missing object for '%s' on branch '%s'"
+                                    .formatted(treeWalk.getPathString(), branch));
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException | IOException e) {
+            throw new IllegalStateException("Repository '%s' is corrupted: %s".formatted(details.directory(), e.getMessage()),
+                    e);
+        }
+    }
+
+    private ObjectId latestHash(String branch, String description) {
         try {
             return this.git().getRepository().resolve(
-                    (this.remoteName == null ? "" : this.remoteName + "/") +
-                            details().branches().sources());
+                    (this.remoteName == null ? "" : this.remoteName + "/") + branch);
         } catch (IOException e) {
-            throw new RuntimeException("Unable to resolve current sources branch latest hash id", e);
+            throw new RuntimeException("Unable to resolve current " + description + " branch latest hash id", e);
+        }
+    }
+
+    /**
+     * @param from The hash of a commit that was previously processed, e.g. indexed.
+     * @param to The hash of a more recent commit.
+     * @return The paths of files that changed between the two commits,
+     *         or an empty optional if the older commit could not be found in this repository nor fetched from the remote,
+     *         e.g. because it is no longer reachable from any branch after a force-push.
+     */
+    public Optional<Set<String>> changedPaths(String from, String to) {
+        if (from.equals(to)) {
+            return Optional.of(Set.of());
+        }
+        var repository = git.getRepository();
+        try {
+            ObjectId fromId = ObjectId.fromString(from);
+            ObjectId toId = ObjectId.fromString(to);
+            if (!repository.getObjectDatabase().has(fromId) && remoteName != null) {
+                // Clones are shallow, so older commits are generally not available locally.
+                git.fetch().setRemote(remoteName).setRefSpecs(from).setDepth(1)
+                        .setProgressMonitor(LoggerProgressMonitor.create(log,
+                                "Fetching from " + remoteName + " " + from + ": "))
+                        .call();
+            }
+            return Optional.of(GitUtils.changedPaths(repository,
+                    revTree(repository, fromId), revTree(repository, toId)));
+        } catch (RuntimeException | IOException | GitAPIException e) {
+            Log.warnf(e, "Unable to list changes between '%s' and '%s' in '%s': %s", from, to, details.directory(),
+                    e.getMessage());
+            return Optional.empty();
         }
     }
 
@@ -194,50 +298,36 @@ public class GitCloneDirectory implements Closeable {
         if (currentUpstreamSubmoduleSourcesHash != null) {
             return Optional.of(currentUpstreamSubmoduleSourcesHash);
         }
-        // We want to get the hash from `git submodule status upstream`, but not from the current state of the branch we are in,
-        //  but rather from a state that we've fetched. As there seems to be no simple way of getting that info out... we will:
-        //  1. Get the name of a current branch we are in (so we can return to it after we are done)
-        //  2. Checkout in detached state the rev we are interested in.
-        //  3. Get the submodule status
-        //  4. Return back to from a detached state to the branch we were initially in.
-        String currentBranch = null;
-        try {
-            currentBranch = git.getRepository().getBranch();
-            try {
-                checkout(currentSourcesLatestHash().name());
-                Map<String, SubmoduleStatus> statusMap = git.submoduleStatus().addPath("upstream").call();
-                Optional<ObjectId> objectId = Optional.ofNullable(statusMap.get("upstream")).map(SubmoduleStatus::getIndexId);
-                objectId.ifPresent(id -> currentUpstreamSubmoduleSourcesHash = id);
-                return objectId;
-            } catch (GitAPIException e) {
-                throw new RuntimeException(
-                        "Failed to list git submodule status for a repository: " + git.getRepository()
-                                .getRemoteNames() + ". " + e.getMessage(),
-                        e);
-            } finally {
-                checkout(currentBranch);
+        // The submodule is recorded as a gitlink entry in the tree of the sources branch, pointing to a commit:
+        // we can read it from there, without checking anything out.
+        var repository = git.getRepository();
+        ObjectId latestHash = currentSourcesLatestHash();
+        if (latestHash == null) {
+            return Optional.empty();
+        }
+        try (TreeWalk treeWalk = TreeWalk.forPath(repository, UPSTREAM_SUBMODULE_PATH, revTree(repository, latestHash))) {
+            if (treeWalk == null || !FileMode.GITLINK.equals(treeWalk.getFileMode(0))) {
+                return Optional.empty();
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Wasn't able to correctly determine the current branch: " + e.getMessage(), e);
-        } catch (GitAPIException e) {
-            throw new RuntimeException("Wasn't able to correctly switch back to '" + currentBranch + "'" + e.getMessage(), e);
+            currentUpstreamSubmoduleSourcesHash = treeWalk.getObjectId(0);
+            return Optional.of(currentUpstreamSubmoduleSourcesHash);
+        } catch (RuntimeException | IOException e) {
+            throw new RuntimeException("Failed to read the '%s' submodule of repository '%s': %s"
+                    .formatted(UPSTREAM_SUBMODULE_PATH, details.directory(), e.getMessage()), e);
         }
     }
 
-    private void checkout(String name) throws GitAPIException {
-        git.checkout()
-                .setName(name)
-                .setProgressMonitor(LoggerProgressMonitor.create(
-                        log,
-                        "Checking out ('%s') in repository '%s'".formatted(name, this)))
-                .call();
-    }
-
     @Override
     public void close() throws IOException {
         try (Closer<IOException> closer = new Closer<>()) {
             closer.push(Git::close, git);
+            // Indexes of large trees (pages) take a fair amount of memory: release them right away.
+            closer.push(GitTreeIndex::evict, pagesTree);
+            closer.push(GitTreeIndex::evict, sourcesTree);
+            closer.push(GitTreeIndex::evict, sourcesTranslationTree);
             pagesTree = null;
+            sourcesTree = null;
+            sourcesTranslationTree = null;
         }
     }
 
@@ -252,15 +342,17 @@ public class GitCloneDirectory implements Closeable {
     public record Details(Path directory, Branches branches) {
         public GitCloneDirectory openAndUpdate() {
             Log.infof("Opening and updating '%s'.", directory);
+            var cloneDirectory = open();
+            // If there's no remote, there's nowhere to pull from, so we don't even try.
+            cloneDirectory.update();
+            return cloneDirectory;
+        }
+
+        public GitCloneDirectory open() {
             Git git = null;
             try {
                 git = Git.open(directory.toFile());
-                String remoteName = inferRemoteName(git);
-                if (remoteName != null) {
-                    update(git, remoteName);
-                }
-                // Else there's nowhere to pull from, so we don't even try.
-                return new GitCloneDirectory(git, this, remoteName);
+                return new GitCloneDirectory(git, this, inferRemoteName(git));
             } catch (IOException e) {
                 new SuppressingCloser(e).push(git);
                 throw new IllegalStateException("Wasn't able to open repository '%s': '%s".formatted(directory, e.getMessage()),
@@ -24,6 +24,23 @@ public class GitInputProvider implements InputProvider {
         return GitUtils.file(git.getRepository(), tree, path);
     }
 
+    @Override
+    public String contentId() throws IOException {
+        return GitUtils.fileId(git.getRepository(), tree, path).name();
+    }
+
+    @Override
+    public long size() throws IOException {
+        return GitUtils.fileSize(git.getRepository(), tree, path);
+    }
+
+    /**
+     * @return The path of the file within the git tree.
+     */
+    public String path() {
+        return path;
+    }
+
     public boolean isFileAvailable() {
         return GitUtils.fileExists(git.getRepository(), tree, path);
     }
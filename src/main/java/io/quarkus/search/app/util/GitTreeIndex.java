@@ -0,0 +1,167 @@
+package io.quarkus.search.app.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+/**
+ * An immutable index of all files in a git tree, mapping each path to the id of the corresponding object,
+ * so that looking up a file doesn't require walking the tree again.
+ * <p>
+ * Paths are stored as UTF-8 bytes in a single array, sorted, and looked up through binary search;
+ * object ids are stored as raw bytes in another array.
+ * This takes much less memory than e.g. a {@code Map<String, ObjectId>},
+ * which matters for the pages tree, which contains every version of every guide.
+ */
+public final class GitTreeIndex {
+
+    // Trees are immutable and identified by their id, so the index for a given tree never changes.
+    // Weak keys, so that an index gets garbage collected along with the trees using it.
+    private static final Map<RevTree, GitTreeIndex> CACHE = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * @return The index of the given tree, built on first access and cached afterwards.
+     */
+    public static GitTreeIndex of(Repository repo, RevTree tree) throws IOException {
+        try {
+            // Building an index for the same tree twice concurrently would be a waste: hold the lock.
+            return CACHE.computeIfAbsent(tree, UncheckedIOFunction.uncheckedIO(ignored -> build(repo, tree)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Drops the index of the given tree from the cache, if any, e.g. when its repository gets closed.
+     */
+    public static void evict(RevTree tree) {
+        if (tree != null) {
+            CACHE.remove(tree);
+        }
+    }
+
+    private static GitTreeIndex build(Repository repo, RevTree tree) throws IOException {
+        List<byte[]> paths = new ArrayList<>();
+        List<ObjectId> ids = new ArrayList<>();
+        try (TreeWalk treeWalk = new TreeWalk(repo)) {
+            treeWalk.addTree(tree);
+            treeWalk.setRecursive(true);
+            while (treeWalk.next()) {
+                paths.add(treeWalk.getRawPath());
+                ids.add(treeWalk.getObjectId(0));
+            }
+        }
+        // Tree walks generally return paths in byte order already, but binary search relies on it: make sure.
+        int[] order = IntStream.range(0, paths.size()).boxed()
+                .sorted(Comparator.comparing(paths::get, Arrays::compareUnsigned))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        int[] pathOffsets = new int[order.length + 1];
+        int totalPathLength = 0;
+        for (byte[] path : paths) {
+            totalPathLength += path.length;
+        }
+        byte[] pathBytes = new byte[totalPathLength];
+        byte[] idBytes = new byte[order.length * Constants.OBJECT_ID_LENGTH];
+        int offset = 0;
+        for (int i = 0; i < order.length; i++) {
+            byte[] path = paths.get(order[i]);
+            pathOffsets[i] = offset;
+            System.arraycopy(path, 0, pathBytes, offset, path.length);
+            offset += path.length;
+            ids.get(order[i]).copyRawTo(idBytes, i * Constants.OBJECT_ID_LENGTH);
+        }
+        pathOffsets[order.length] = offset;
+        return new GitTreeIndex(pathBytes, pathOffsets, idBytes);
+    }
+
+    private final byte[] pathBytes;
+    private final int[] pathOffsets;
+    private final byte[] idBytes;
+
+    private GitTreeIndex(byte[] pathBytes, int[] pathOffsets, byte[] idBytes) {
+        this.pathBytes = pathBytes;
+        this.pathOffsets = pathOffsets;
+        this.idBytes = idBytes;
+    }
+
+    public int size() {
+        return pathOffsets.length - 1;
+    }
+
+    /**
+     * @param path The exact path of a file, without a leading slash.
+     * @return The id of the object at that path, or {@code null} if there is no such file.
+     */
+    public ObjectId find(String path) {
+        byte[] key = path.getBytes(StandardCharsets.UTF_8);
+        int index = lowerBound(key);
+        if (index < size() && compare(index, key) == 0) {
+            return ObjectId.fromRaw(idBytes, index * Constants.OBJECT_ID_LENGTH);
+        }
+        return null;
+    }
+
+    /**
+     * @param path The path of a file or directory, without a leading or trailing slash.
+     * @return The paths of all files at or under the given path, in byte order.
+     */
+    public Stream<String> paths(String path) {
+        byte[] prefix = path.getBytes(StandardCharsets.UTF_8);
+        List<String> result = new ArrayList<>();
+        for (int i = lowerBound(prefix); i < size(); i++) {
+            int start = pathOffsets[i];
+            int length = pathOffsets[i + 1] - start;
+            if (length < prefix.length
+                    || !Arrays.equals(pathBytes, start, start + prefix.length, prefix, 0, prefix.length)) {
+                break;
+            }
+            // Same semantics as a PathFilter: "foo" matches "foo" and "foo/bar", but not "foo-bar".
+            if (length == prefix.length || pathBytes[start + prefix.length] == '/') {
+                result.add(new String(pathBytes, start, length, StandardCharsets.UTF_8));
+            }
+        }
+        return result.stream();
+    }
+
+    private int lowerBound(byte[] key) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(mid, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int compare(int index, byte[] key) {
+        return Arrays.compareUnsigned(pathBytes, pathOffsets[index], pathOffsets[index + 1], key, 0, key.length);
+    }
+
+    @Override
+    public String toString() {
+        return "GitTreeIndex{" +
+                "size=" + size() +
+                ", pathBytes=" + pathBytes.length +
+                '}';
+    }
+}
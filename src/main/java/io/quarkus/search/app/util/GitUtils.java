@@ -4,9 +4,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -16,13 +16,15 @@ import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.treewalk.TreeWalk;
-import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.RawParseUtils;
 
 public final class GitUtils {
@@ -54,25 +56,35 @@ public final class GitUtils {
     }
 
     public static InputStream file(Repository repo, RevTree tree, String path) throws IOException {
-        TreeWalk treeWalk = new TreeWalk(repo);
-        treeWalk.addTree(tree);
-        treeWalk.setRecursive(true);
-        treeWalk.setFilter(PathFilter.create(path));
-        if (!treeWalk.next()) {
+        ObjectLoader loader = repo.open(fileId(repo, tree, path));
+        return loader.openStream();
+    }
+
+    /**
+     * @return The id of the blob for the file at the given path,
+     *         which is a hash of the file content.
+     */
+    public static ObjectId fileId(Repository repo, RevTree tree, String path) throws IOException {
+        ObjectId id = GitTreeIndex.of(repo, tree).find(path);
+        if (id == null) {
             throw new IllegalStateException("Missing file '%s' in '%s'".formatted(path, tree));
         }
-        ObjectId objectId = treeWalk.getObjectId(0);
-        ObjectLoader loader = repo.open(objectId);
-        return loader.openStream();
+        return id;
+    }
+
+    /**
+     * @return The size of the file at the given path in bytes,
+     *         read from the object header without loading the content.
+     */
+    public static long fileSize(Repository repo, RevTree tree, String path) throws IOException {
+        try (ObjectReader reader = repo.newObjectReader()) {
+            return reader.getObjectSize(fileId(repo, tree, path), Constants.OBJ_BLOB);
+        }
     }
 
     public static boolean fileExists(Repository repo, RevTree tree, String path) {
         try {
-            TreeWalk treeWalk = new TreeWalk(repo);
-            treeWalk.addTree(tree);
-            treeWalk.setRecursive(true);
-            treeWalk.setFilter(PathFilter.create(path));
-            return treeWalk.next();
+            return GitTreeIndex.of(repo, tree).find(path) != null;
         } catch (IOException e) {
             Log.warn("A problem occurred while trying to find a file in git tree: " + e.getMessage(), e);
             return false;
@@ -81,21 +93,28 @@ public final class GitUtils {
 
     public static Stream<String> fileStream(Repository repo, RevTree tree, String path, Predicate<String> filenameFilter) {
         try {
-            List<String> files = new ArrayList<>();
+            return GitTreeIndex.of(repo, tree).paths(path).filter(filenameFilter);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            TreeWalk treeWalk = new TreeWalk(repo);
-            treeWalk.addTree(tree);
+    /**
+     * @return The paths of all files that were added, removed or modified between the two given trees.
+     */
+    public static Set<String> changedPaths(Repository repo, RevTree from, RevTree to) {
+        try (TreeWalk treeWalk = new TreeWalk(repo)) {
+            treeWalk.addTree(from);
+            treeWalk.addTree(to);
             treeWalk.setRecursive(true);
-            treeWalk.setFilter(PathFilter.create(path));
+            treeWalk.setFilter(TreeFilter.ANY_DIFF);
 
+            Set<String> paths = new HashSet<>();
             while (treeWalk.next()) {
                 byte[] rawPath = treeWalk.getRawPath();
-                String fullName = RawParseUtils.decode(StandardCharsets.UTF_8, rawPath, 0, rawPath.length);
-                if (filenameFilter.test(fullName)) {
-                    files.add(fullName);
-                }
+                paths.add(RawParseUtils.decode(StandardCharsets.UTF_8, rawPath, 0, rawPath.length));
             }
-            return files.stream();
+            return paths;
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
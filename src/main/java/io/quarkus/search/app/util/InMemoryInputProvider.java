@@ -0,0 +1,56 @@
+package io.quarkus.search.app.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import io.quarkus.search.app.hibernate.InputProvider;
+
+/**
+ * An input provider whose content was read into memory,
+ * so that it can be consumed without further I/O.
+ */
+public class InMemoryInputProvider implements InputProvider {
+    public static InMemoryInputProvider read(InputProvider provider) throws IOException {
+        try (var in = provider.open()) {
+            return new InMemoryInputProvider(provider, in.readAllBytes());
+        }
+    }
+
+    private final InputProvider delegate;
+    private final byte[] content;
+
+    private InMemoryInputProvider(InputProvider delegate, byte[] content) {
+        this.delegate = delegate;
+        this.content = content;
+    }
+
+    /**
+     * @return The provider content was read from.
+     */
+    public InputProvider source() {
+        return delegate;
+    }
+
+    @Override
+    public long size() {
+        return content.length;
+    }
+
+    @Override
+    public InputStream open() {
+        return new ByteArrayInputStream(content);
+    }
+
+    @Override
+    public String contentId() throws IOException {
+        return delegate.contentId();
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryInputProvider{" +
+                "delegate=" + delegate +
+                '}';
+    }
+}
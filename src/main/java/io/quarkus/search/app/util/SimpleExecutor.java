@@ -22,6 +22,15 @@ public class SimpleExecutor implements AutoCloseable {
     private final BlockingQueue<CompletableFuture<?>> submittedTasks = new LinkedBlockingQueue<>();
 
     public SimpleExecutor(OptionalInt parallelism) {
+        this(parallelism, OptionalInt.empty());
+    }
+
+    /**
+     * @param parallelism The number of threads; defaults to the number of processors.
+     * @param queueSize The maximum number of tasks waiting for a thread,
+     *        beyond which submitting blocks; defaults to twice the parallelism.
+     */
+    public SimpleExecutor(OptionalInt parallelism, OptionalInt queueSize) {
         int defaultedParallelism = parallelism.orElse(Runtime.getRuntime().availableProcessors());
         executor = new ThreadPoolExecutor(
                 defaultedParallelism,
@@ -30,10 +39,17 @@ public class SimpleExecutor implements AutoCloseable {
                 TimeUnit.MILLISECONDS,
                 // We need a fair lock in order to avoid some producers getting locked out
                 // for much longer than others.
-                new ArrayBlockingQueue<>(defaultedParallelism * 2, true),
+                new ArrayBlockingQueue<>(queueSize.orElse(defaultedParallelism * 2), true),
                 new ThreadPoolProviderImpl.BlockPolicy());
     }
 
+    /**
+     * @return The number of tasks waiting for a thread.
+     */
+    public int queueSize() {
+        return executor.getQueue().size();
+    }
+
     @Override
     public void close() {
         List<?> remainingTasks = executor.shutdownNow();
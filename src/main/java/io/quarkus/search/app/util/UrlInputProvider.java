@@ -3,59 +3,65 @@ package io.quarkus.search.app.util;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.MalformedURLException;
 import java.net.URI;
-import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import io.quarkus.search.app.hibernate.InputProvider;
-import io.quarkus.search.app.indexing.FailureCollector;
 
 public class UrlInputProvider implements InputProvider {
 
     private static final byte[] NO_CONTENT_CONTENT = "<!DOCTYPE html><html lang=\"en\"><head><meta charset=\"UTF-8\"><title>Quarkus</title></head><body><!--No Content--></body></html>"
             .getBytes(StandardCharsets.UTF_8);
+    private static final String NO_CONTENT_ID = "no-content";
 
-    private final Path temporaryFile;
-    private final URL url;
+    private final URI url;
+    private final CompletableFuture<BlobStore.Blob> prefetched;
 
-    public UrlInputProvider(CloseableDirectory directory, URI uri, FailureCollector failureCollector) {
+    /**
+     * @param url The URL content is downloaded from.
+     * @param prefetched A future completing with the blob holding content downloaded from that URL,
+     *        or with {@code null} if it couldn't be downloaded, see {@link UrlPrefetcher#prefetch(URI)}.
+     */
+    public UrlInputProvider(URI url, CompletableFuture<BlobStore.Blob> prefetched) {
+        this.url = url;
+        this.prefetched = prefetched;
+    }
+
+    private BlobStore.Blob blob() throws IOException {
         try {
-            this.url = uri.toURL();
-            // We are creating another tmp directory just to be safe in case multiple versions are targeting the same
-            // external guide or the same guide is referenced multiple times within the same file:
-            Path temporaryFile = Files.createTempDirectory(directory.path(), "quarkiverse-")
-                    .resolve(this.url.getPath().replaceAll("[./]", "-"));
-            try (InputStream inputStream = this.url.openStream()) {
-                Files.copy(inputStream, temporaryFile);
-            } catch (IOException e) {
-                failureCollector.warning(FailureCollector.Stage.PARSING,
-                        "Failed to prefetch the guide content from the URL (%s): %s".formatted(this.url, e.getMessage()), e);
-                temporaryFile = null;
-            }
-            this.temporaryFile = temporaryFile;
-
-        } catch (MalformedURLException e) {
-            throw new IllegalArgumentException("Unable to create an URL from: %s : %s".formatted(uri, e.getMessage()), e);
-        } catch (IOException e) {
-            throw new IllegalArgumentException(
-                    "Unable to create a temporary copy of the content from: %s : %s".formatted(uri, e.getMessage()), e);
+            // Generally already done by the time content is needed.
+            return prefetched.join();
+        } catch (CompletionException e) {
+            throw new IOException("Failed to prefetch '%s': %s".formatted(url, e.getMessage()), e);
         }
     }
 
     @Override
     public InputStream open() throws IOException {
-        return temporaryFile != null ? Files.newInputStream(temporaryFile)
+        BlobStore.Blob blob = blob();
+        return blob != null ? blob.open()
                 : new ByteArrayInputStream(NO_CONTENT_CONTENT);
     }
 
+    @Override
+    public String contentId() throws IOException {
+        BlobStore.Blob blob = blob();
+        // Blobs are content-addressed: no need to read the content again.
+        return blob != null ? blob.id() : NO_CONTENT_ID;
+    }
+
+    @Override
+    public long size() throws IOException {
+        BlobStore.Blob blob = blob();
+        return blob != null ? blob.size() : NO_CONTENT_CONTENT.length;
+    }
+
     @Override
     public String toString() {
         return "UrlInputProvider{" +
-                "temporaryFile=" + temporaryFile +
-                ", url=" + url +
+                "url=" + url +
                 '}';
     }
 }
@@ -0,0 +1,277 @@
+package io.quarkus.search.app.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import io.quarkus.search.app.indexing.FailureCollector;
+
+import io.quarkus.logging.Log;
+
+import org.hibernate.search.util.common.impl.Closer;
+import org.hibernate.search.util.common.impl.SuppressingCloser;
+
+/**
+ * Downloads content from URLs in the background, with bounded parallelism, into a {@link BlobStore} in a directory.
+ * <p>
+ * Each URL is only downloaded once, even when requested with different query parameters that don't affect content
+ * (see {@link #canonical(URI)}), and identical content downloaded from different URLs is only stored once.
+ * If the directory is persistent, content downloaded in a previous run is reused
+ * as long as the server confirms it didn't change, through ETag/Last-Modified conditional requests.
+ */
+public final class UrlPrefetcher implements Closeable {
+
+    /**
+     * Query parameters that don't affect content, e.g. appended to Quarkiverse guide URLs for each Quarkus version.
+     */
+    private static final Set<String> IGNORED_QUERY_PARAMETERS = Set.of("quarkusDocVersion");
+    private static final String METADATA_FILE = "urls.properties";
+    // Prefixes of metadata property keys, followed by the URL.
+    private static final String BLOB_PROPERTY_PREFIX = "blob.";
+    private static final String ETAG_PROPERTY_PREFIX = "etag.";
+    private static final String LAST_MODIFIED_PROPERTY_PREFIX = "last-modified.";
+
+    private final CloseableDirectory directory;
+    private final Duration timeout;
+    private final FailureCollector failureCollector;
+    private final BlobStore blobs;
+    // Content downloaded from each URL, in this run or a previous one.
+    private final Map<String, Metadata> metadata;
+    private final HttpClient client;
+    private final ExecutorService executor;
+    private final Map<URI, CompletableFuture<BlobStore.Blob>> prefetched = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+    // The ids of blobs referenced by the metadata file, once written on close.
+    private Set<String> writtenBlobIds;
+
+    /**
+     * @param directory Where to store downloaded content; if it doesn't get deleted on close,
+     *        content will be revalidated and reused by the next prefetcher using the same directory.
+     *        Closed along with this prefetcher, including when this constructor fails.
+     * @param parallelism The maximum number of concurrent downloads.
+     * @param timeout The timeout for each download.
+     * @param failureCollector Where to report failures to download content.
+     */
+    public UrlPrefetcher(CloseableDirectory directory, int parallelism, Duration timeout,
+            FailureCollector failureCollector)
+            throws IOException {
+        this.directory = directory;
+        this.timeout = timeout;
+        this.failureCollector = failureCollector;
+        try {
+            this.blobs = BlobStore.open(directory.path());
+        } catch (RuntimeException | IOException e) {
+            new SuppressingCloser(e).push(directory);
+            throw e;
+        }
+        this.metadata = readMetadata(directory.path().resolve(METADATA_FILE));
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        // Unbounded queue: callers must not block, so that they can keep requesting content
+        // while downloads are in progress.
+        this.executor = Executors.newFixedThreadPool(parallelism);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try (var closer = new Closer<IOException>()) {
+            // Some content may have been requested, but never used, e.g. for guides that got filtered out.
+            closer.push(ExecutorService::shutdownNow, executor);
+            closer.push(UrlPrefetcher::writeMetadata, this);
+            closer.push(BlobStore::close, blobs);
+            closer.push(UrlPrefetcher::compactBlobs, this);
+            closer.push(CloseableDirectory::close, directory);
+        }
+    }
+
+    /**
+     * Starts downloading content from the given URL, unless that already happened.
+     *
+     * @param uri The URL to download content from.
+     * @return A future completing with the blob holding the downloaded content,
+     *         or with {@code null} if it could not be downloaded (the failure is reported to the failure collector).
+     *         The blob can only be read until this prefetcher gets closed.
+     */
+    public CompletableFuture<BlobStore.Blob> prefetch(URI uri) {
+        URI canonical = canonical(uri);
+        CompletableFuture<BlobStore.Blob> result = new CompletableFuture<>();
+        CompletableFuture<BlobStore.Blob> existing = prefetched.putIfAbsent(canonical, result);
+        if (existing != null) {
+            return existing;
+        }
+        executor.execute(() -> {
+            try {
+                result.complete(fetch(canonical));
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * @return The given URL, without query parameters that don't affect content.
+     */
+    public static URI canonical(URI uri) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return uri;
+        }
+        String canonicalQuery = Arrays.stream(query.split("&"))
+                .filter(parameter -> !IGNORED_QUERY_PARAMETERS.contains(parameter.split("=", 2)[0]))
+                .collect(Collectors.joining("&"));
+        // Working with raw (already quoted) components, to avoid quoting them twice.
+        return URI.create(uri.getScheme() + "://" + uri.getRawAuthority() + uri.getRawPath()
+                + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery)
+                + (uri.getRawFragment() == null ? "" : "#" + uri.getRawFragment()));
+    }
+
+    private BlobStore.Blob fetch(URI uri) {
+        String url = uri.toString();
+        BlobStore.Blob cached = null;
+        var request = HttpRequest.newBuilder(uri).timeout(timeout).GET();
+        try {
+            Metadata previous = metadata.get(url);
+            cached = previous == null ? null : blobs.get(previous.blobId());
+            if (cached != null) {
+                if (previous.etag() != null) {
+                    request.header("If-None-Match", previous.etag());
+                }
+                if (previous.lastModified() != null) {
+                    request.header("If-Modified-Since", previous.lastModified());
+                }
+            }
+            var response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            if (cached != null && response.statusCode() == 304) {
+                Log.debugf("Content of '%s' did not change, reusing %s", uri, cached);
+                return cached;
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("Unexpected HTTP status " + response.statusCode());
+            }
+            BlobStore.Blob blob = blobs.put(response.body());
+            HttpHeaders headers = response.headers();
+            metadata.put(url, new Metadata(blob.id(), headers.firstValue("ETag").orElse(null),
+                    headers.firstValue("Last-Modified").orElse(null)));
+            return blob;
+        } catch (IOException e) {
+            return fallback(uri, cached, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback(uri, cached, e);
+        }
+    }
+
+    private BlobStore.Blob fallback(URI uri, BlobStore.Blob cached, Exception e) {
+        if (closed) {
+            // Nobody's waiting for this content anymore, see close().
+            Log.debugf(e, "Abandoned prefetching of '%s'", uri);
+            return null;
+        }
+        if (cached != null) {
+            failureCollector.warning(FailureCollector.Stage.PARSING,
+                    "Failed to revalidate the guide content from the URL (%s), using content downloaded previously: %s"
+                            .formatted(uri, e.getMessage()),
+                    e);
+            return cached;
+        }
+        failureCollector.warning(FailureCollector.Stage.PARSING,
+                "Failed to prefetch the guide content from the URL (%s): %s".formatted(uri, e.getMessage()), e);
+        return null;
+    }
+
+    private static Map<String, Metadata> readMetadata(Path metadataFile) {
+        Map<String, Metadata> result = new ConcurrentHashMap<>();
+        if (!Files.exists(metadataFile)) {
+            return result;
+        }
+        var properties = new Properties();
+        try (InputStream input = Files.newInputStream(metadataFile)) {
+            properties.load(input);
+        } catch (IOException | IllegalArgumentException e) {
+            Log.debugf(e, "Ignoring invalid metadata file '%s'", metadataFile);
+            return result;
+        }
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(BLOB_PROPERTY_PREFIX)) {
+                String url = key.substring(BLOB_PROPERTY_PREFIX.length());
+                result.put(url, new Metadata(properties.getProperty(key),
+                        properties.getProperty(ETAG_PROPERTY_PREFIX + url),
+                        properties.getProperty(LAST_MODIFIED_PROPERTY_PREFIX + url)));
+            }
+        }
+        return result;
+    }
+
+    private void writeMetadata() throws IOException {
+        var properties = new Properties();
+        Set<String> blobIds = new HashSet<>();
+        metadata.forEach((url, value) -> {
+            properties.setProperty(BLOB_PROPERTY_PREFIX + url, value.blobId());
+            blobIds.add(value.blobId());
+            if (value.etag() != null) {
+                properties.setProperty(ETAG_PROPERTY_PREFIX + url, value.etag());
+            }
+            if (value.lastModified() != null) {
+                properties.setProperty(LAST_MODIFIED_PROPERTY_PREFIX + url, value.lastModified());
+            }
+        });
+        // Replace the file atomically: metadata must never point to content that's not in the blob store,
+        // and blobs are only removed from the store after that, see compactBlobs,
+        // so the previous file remains valid until then.
+        Path metadataFile = directory.path().resolve(METADATA_FILE);
+        Path temporaryFile = Files.createTempFile(directory.path(), METADATA_FILE, ".tmp");
+        try {
+            try (OutputStream output = Files.newOutputStream(temporaryFile)) {
+                properties.store(output, null);
+            }
+            Files.move(temporaryFile, metadataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            writtenBlobIds = blobIds;
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private void compactBlobs() throws IOException {
+        if (writtenBlobIds == null) {
+            // The previous metadata file is still there, and may reference any blob.
+            return;
+        }
+        // Content that's no longer referenced, e.g. previous versions of guides, would otherwise accumulate.
+        BlobStore.compact(directory.path(), writtenBlobIds);
+    }
+
+    @Override
+    public String toString() {
+        return "UrlPrefetcher{" +
+                "directory=" + directory +
+                ", prefetched=" + prefetched.size() +
+                '}';
+    }
+
+    private record Metadata(String blobId, String etag, String lastModified) {
+    }
+}
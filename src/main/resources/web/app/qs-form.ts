@@ -6,10 +6,18 @@ import {LocalSearch} from "./local-search";
 export const QS_START_EVENT = 'qs-start';
 export const QS_RESULT_EVENT = 'qs-result';
 export const QS_NEXT_PAGE_EVENT = 'qs-next-page';
+export const QS_SNIPPETS_EVENT = 'qs-snippets';
+export const QS_SNIPPETS_RESULT_EVENT = 'qs-snippets-result';
+
+// Content snippets are expensive to compute: they are fetched separately, only for hits being displayed.
+const CONTENT_SNIPPETS = 2;
+const CONTENT_SNIPPETS_LENGTH = 120;
 
 export interface QsResult {
   hits: QsHit[];
   hasMoreHits: boolean;
+  search?: object;
+  deferredSnippets?: boolean;
 }
 
 export interface QsHit {
@@ -17,10 +25,69 @@ export interface QsHit {
   summary: string;
   url: string;
   keywords: string | undefined;
-  content: string | undefined;
+  content: string | [string] | undefined;
   type: string | undefined;
 }
 
+// Must be consistent with defaults on the server side.
+const DEFAULT_SEARCH_PARAMS: Record<string, string> = {
+  version: 'latest',
+  language: 'en',
+  highlightCssClass: 'highlighted',
+  page: '0',
+  contentSnippets: '1',
+  contentSnippetsLength: '100',
+  deferContentSnippets: 'false',
+  facets: 'false',
+};
+
+// Must be consistent with the parameter order of GuideSearchQuery#toQueryString on the server side.
+const CANONICAL_PARAM_ORDER: string[] = [
+  'version',
+  'categories',
+  'q',
+  'language',
+  'highlightCssClass',
+  'page',
+  'contentSnippets',
+  'contentSnippetsLength',
+  'deferContentSnippets',
+  'facets',
+];
+
+/**
+ * Builds a query string with parameters in the same order as the server does, default values omitted
+ * and the text query normalized as the server does,
+ * so that equivalent searches lead to the same URL, which helps with HTTP caching.
+ */
+function canonicalQueryString(params: Record<string, string>): string {
+  const keys = Object.keys(params);
+  const orderedKeys = [
+    ...CANONICAL_PARAM_ORDER.filter(key => keys.includes(key)),
+    // Parameters not part of the search itself, e.g. the cursor, come last.
+    ...keys.filter(key => !CANONICAL_PARAM_ORDER.includes(key)).sort(),
+  ];
+  const queryParams = new URLSearchParams();
+  for (const key of orderedKeys) {
+    let value = params[key];
+    if (value === undefined || value === null) {
+      continue;
+    }
+    value = value.toString();
+    if (key === 'q') {
+      // Analyzers lowercase text anyway, and leading/trailing spaces are meaningless.
+      value = value.trim().toLowerCase();
+      if (value.length === 0) {
+        continue;
+      }
+    }
+    if (DEFAULT_SEARCH_PARAMS[key] !== value) {
+      queryParams.append(key, value);
+    }
+  }
+  return queryParams.toString();
+}
+
 /**
  * This component is the form that triggers the search
  */
@@ -51,6 +118,7 @@ export class QsForm extends LitElement {
   @property({type: String, attribute: 'local-search'}) localSearch: boolean = false;
 
   private _page: number = 0;
+  private _cursor?: string = null;
   private _currentHitCount: number = 0;
   private _abortController?: AbortController = null;
 
@@ -67,6 +135,7 @@ export class QsForm extends LitElement {
     LocalSearch.enableLocalSearch();
     const formElements = this._getFormElements();
     this.addEventListener(QS_NEXT_PAGE_EVENT, this._handleNextPage);
+    this.addEventListener(QS_SNIPPETS_EVENT, this._handleSnippets);
     formElements.forEach((el) => {
       const eventName = this._isInput(el) ? 'input' : 'change';
       el.addEventListener(eventName, this._handleInputChange);
@@ -76,6 +145,7 @@ export class QsForm extends LitElement {
   disconnectedCallback() {
     super.disconnectedCallback();
     this.removeEventListener(QS_NEXT_PAGE_EVENT, this._handleNextPage);
+    this.removeEventListener(QS_SNIPPETS_EVENT, this._handleSnippets);
     const formElements = this._getFormElements();
     formElements.forEach(el => {
       const eventName = this._isInput(el) ? 'input' : 'change';
@@ -91,8 +161,8 @@ export class QsForm extends LitElement {
     const formElements = this._getFormElements();
     const formData = {
       language: this.language,
-      contentSnippets: 2,
-      contentSnippetsLength: 120,
+      // Content snippets get fetched separately, see _handleSnippets.
+      deferContentSnippets: 'true',
     };
 
     if (this.quarkusversion) {
@@ -140,9 +210,13 @@ export class QsForm extends LitElement {
         } else {
           this._currentHitCount = r.hits.length;
         }
+        // The cursor allows fetching the next page at a constant cost, consistently with the previous pages.
+        this._cursor = r.cursor;
         const total = r.total?.lowerBound;
         const hasMoreHits = r.hits.length > 0 && total > this._currentHitCount;
-        this.dispatchEvent(new CustomEvent(QS_RESULT_EVENT, {detail: {...r, search: data, page: this._page, hasMoreHits}}));
+        this.dispatchEvent(new CustomEvent(QS_RESULT_EVENT, {
+          detail: {...r, search: data, page: this._page, hasMoreHits, deferredSnippets: true}
+        }));
       }).catch(e => {
       console.error('Could not run search: ' + e);
       if (this._abortController != controller) {
@@ -151,6 +225,7 @@ export class QsForm extends LitElement {
         return;
       }
       this._page = 0;
+      this._cursor = null;
       this._currentHitCount = 0;
       // Fall back to Javascript in-page search
       this._localSearch();
@@ -172,6 +247,9 @@ export class QsForm extends LitElement {
         return;
       }
     }
+    // A cursor is only valid for the search it was returned for
+    this._page = 0;
+    this._cursor = null;
     this._searchDebounced();
   }
 
@@ -180,6 +258,36 @@ export class QsForm extends LitElement {
     this._search();
   }
 
+  private _handleSnippets = (e: CustomEvent) => {
+    const search = e.detail.search;
+    if (!search.q) {
+      return;
+    }
+    const queryParams = new URLSearchParams({
+      q: search.q,
+      language: search.language,
+      contentSnippets: CONTENT_SNIPPETS.toString(),
+      contentSnippetsLength: CONTENT_SNIPPETS_LENGTH.toString(),
+    });
+    if (search.version) {
+      queryParams.append('version', search.version);
+    }
+    for (const url of e.detail.urls) {
+      queryParams.append('url', url);
+    }
+    fetch(this.server + '/api/guides/snippets?' + queryParams.toString())
+      .then(response => {
+        if (response.ok) {
+          return response.json();
+        }
+        throw 'Response status is ' + response.status;
+      })
+      .then((snippets: any) => {
+        this.dispatchEvent(new CustomEvent(QS_SNIPPETS_RESULT_EVENT, {detail: {search, urls: e.detail.urls, snippets}}));
+      })
+      .catch(err => console.error('Could not fetch content snippets: ' + err));
+  }
+
   private _isInput(el: HTMLFormElement) {
     return el.tagName.toLowerCase() === 'input'
   }
@@ -189,8 +297,11 @@ export class QsForm extends LitElement {
       ...params,
       'page': this._page.toString()
     };
+    if (this._page > 0 && this._cursor) {
+      queryParams['cursor'] = this._cursor;
+    }
     const timeoutId = setTimeout(() => controller.abort(), timeout)
-    const response = await fetch(this.server + '/api/guides/search?' + (new URLSearchParams(queryParams)).toString(), {
+    const response = await fetch(this.server + '/api/guides/search?' + canonicalQueryString(queryParams), {
       method: method,
       signal: controller.signal,
       body: null
@@ -205,6 +316,7 @@ export class QsForm extends LitElement {
 
   private _clearSearch() {
     this._page = 0;
+    this._cursor = null;
     this._currentHitCount = 0;
     if (this._abortController) {
       this._abortController.abort();
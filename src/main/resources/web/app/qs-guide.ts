@@ -3,6 +3,8 @@ import { unsafeHTML } from 'lit/directives/unsafe-html.js';
 import { customElement, property } from 'lit/decorators.js';
 import icons from './assets/icons';
 
+export const QS_GUIDE_VISIBLE_EVENT = 'qs-guide-visible';
+
 /**
  * This component is a single guide hit in the search results
  */
@@ -123,6 +125,8 @@ export class QsGuide extends LitElement {
   @property({type: String}) origin: string = "quarkus";
 
 
+  private _visibilityObserver?: IntersectionObserver = null;
+
   connectedCallback() {
     if (this.data) {
       for (const key in this.data) {
@@ -132,12 +136,26 @@ export class QsGuide extends LitElement {
       }
     }
     super.connectedCallback();
+    // Let the target know when this hit gets displayed, so that it can load content snippets lazily.
+    this._visibilityObserver = new IntersectionObserver(this._handleIntersection);
+    this._visibilityObserver.observe(this);
   }
 
   disconnectedCallback() {
+    this._visibilityObserver?.disconnect();
+    this._visibilityObserver = null;
     super.disconnectedCallback();
   }
 
+  private _handleIntersection = (entries: IntersectionObserverEntry[]) => {
+    if (!entries.some(e => e.isIntersecting)) {
+      return;
+    }
+    // Only notify once
+    this._visibilityObserver?.disconnect();
+    this.dispatchEvent(new CustomEvent(QS_GUIDE_VISIBLE_EVENT, {bubbles: true, composed: true, detail: {url: this.url}}));
+  }
+
   render() {
     return html`
       <div class="qs-hit qs-guide type-${this.type}" aria-label="Guide Hit">
@@ -1,7 +1,14 @@
 import {LitElement, html, css, unsafeCSS} from 'lit';
 import {customElement, property, state, queryAll} from 'lit/decorators.js';
-import './qs-guide'
-import {QS_NEXT_PAGE_EVENT, QS_RESULT_EVENT, QS_START_EVENT, QsResult} from "./qs-form";
+import {QS_GUIDE_VISIBLE_EVENT} from './qs-guide'
+import {
+  QS_NEXT_PAGE_EVENT,
+  QS_RESULT_EVENT,
+  QS_SNIPPETS_EVENT,
+  QS_SNIPPETS_RESULT_EVENT,
+  QS_START_EVENT,
+  QsResult
+} from "./qs-form";
 import debounce from 'lodash/debounce';
 import icons from "./assets/icons";
 
@@ -69,18 +76,23 @@ export class QsTarget extends LitElement {
   @queryAll('.qs-hit') private _hits: NodeListOf<HTMLElement>;
 
   private _form: HTMLElement;
+  private _pendingSnippetUrls: string[] = [];
 
   connectedCallback() {
     super.connectedCallback();
     this._form = document.querySelector("qs-form");
     this._form.addEventListener(QS_RESULT_EVENT, this._handleResult);
     this._form.addEventListener(QS_START_EVENT, this._loadingStart);
+    this._form.addEventListener(QS_SNIPPETS_RESULT_EVENT, this._handleSnippetsResult);
+    this.addEventListener(QS_GUIDE_VISIBLE_EVENT, this._handleGuideVisible);
     document.addEventListener('scroll', this._handleScrollDebounced)
   }
 
   disconnectedCallback() {
     this._form.removeEventListener(QS_RESULT_EVENT, this._handleResult);
     this._form.removeEventListener(QS_START_EVENT, this._loadingStart);
+    this._form.removeEventListener(QS_SNIPPETS_RESULT_EVENT, this._handleSnippetsResult);
+    this.removeEventListener(QS_GUIDE_VISIBLE_EVENT, this._handleGuideVisible);
     document.removeEventListener('scroll', this._handleScrollDebounced);
     super.disconnectedCallback();
   }
@@ -124,7 +136,7 @@ export class QsTarget extends LitElement {
     switch (this.type) {
       case 'guide':
         return html`
-          <qs-guide class="qs-hit" .data=${i}></qs-guide>`
+          <qs-guide class="qs-hit" .data=${i} .content=${i.content}></qs-guide>`
     }
     return ''
   }
@@ -176,10 +188,47 @@ export class QsTarget extends LitElement {
     this._result.hasMoreHits = e.detail.hasMoreHits;
   }
 
+  private _handleGuideVisible = (e: CustomEvent) => {
+    if (!this._result?.deferredSnippets) {
+      // Hits already include their snippets, if any (e.g. local search).
+      return;
+    }
+    this._pendingSnippetUrls.push(e.detail.url);
+    this._requestSnippetsDebounced();
+  }
+
+  private _requestSnippets = () => {
+    if (!this._result?.deferredSnippets || this._pendingSnippetUrls.length === 0) {
+      return;
+    }
+    const urls = this._pendingSnippetUrls;
+    this._pendingSnippetUrls = [];
+    this._form.dispatchEvent(new CustomEvent(QS_SNIPPETS_EVENT, {detail: {search: this._result.search, urls}}));
+  }
+  private _requestSnippetsDebounced = debounce(this._requestSnippets, 100);
+
+  private _handleSnippetsResult = (e: CustomEvent) => {
+    if (!this._result || this._result.search !== e.detail.search) {
+      // Snippets for a previous search; ignore.
+      return;
+    }
+    const contentByUrl = new Map<string, [string]>();
+    for (const snippets of e.detail.snippets) {
+      contentByUrl.set(snippets.url, snippets.content);
+    }
+    for (const hit of this._result.hits) {
+      if (contentByUrl.has(hit.url)) {
+        hit.content = contentByUrl.get(hit.url);
+      }
+    }
+    this.requestUpdate();
+  }
+
   private _loadingStart = (e:CustomEvent) => {
     this._loading = true;
     if(e.detail.page === 0) {
       this._result = undefined;
+      this._pendingSnippetUrls = [];
     }
   }
 
@@ -1,5 +1,6 @@
 package io.quarkus.search.app;
 
+import static io.restassured.RestAssured.given;
 import static io.restassured.RestAssured.when;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -64,4 +65,43 @@ class ReferenceServiceTest {
                 "web",
                 "writing-extensions");
     }
+
+    @Test
+    void categories_versionAndLanguage() {
+        var categories = when().get("/categories?version=" + QuarkusVersions.LATEST + "&language=en")
+                .then()
+                .statusCode(200)
+                .extract().body().as(LIST_OF_STRINGS);
+        assertThat(categories).isNotEmpty()
+                .isSubsetOf(get("categories"));
+    }
+
+    @Test
+    void topics() {
+        assertThat(get("topics")).isNotEmpty().isSorted();
+    }
+
+    @Test
+    void extensions() {
+        assertThat(get("extensions")).isNotEmpty().isSorted();
+    }
+
+    @Test
+    void conditionalRequest() {
+        var etag = when().get("/versions")
+                .then()
+                .statusCode(200)
+                .extract().header("ETag");
+        assertThat(etag).isNotBlank();
+        given()
+                .header("If-None-Match", etag)
+                .when().get("/versions")
+                .then()
+                .statusCode(304);
+        given()
+                .header("If-None-Match", etag)
+                .when().get("/categories")
+                .then()
+                .statusCode(200);
+    }
 }
@@ -0,0 +1,59 @@
+package io.quarkus.search.app;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Set;
+
+import io.quarkus.search.app.entity.Guide;
+import io.quarkus.search.app.entity.I18nData;
+import io.quarkus.search.app.entity.Language;
+
+import org.junit.jupiter.api.Test;
+
+class ReferenceSnapshotTest {
+
+    private static Guide guide(String url, Language language, String category, I18nData<String> topic,
+            String extension) {
+        Guide guide = new Guide();
+        guide.url = URI.create(url);
+        guide.quarkusVersion = QuarkusVersions.LATEST;
+        guide.language = language;
+        guide.categories = Set.of(category);
+        guide.topics = List.of(topic);
+        guide.extensions = Set.of(extension);
+        return guide;
+    }
+
+    @Test
+    void quarkiverseGuide() {
+        var builder = ReferenceSnapshot.builder();
+        I18nData<String> coreTopic = new I18nData<>(Language.ENGLISH, "core-topic");
+        coreTopic.set(Language.JAPANESE, "core-topic-ja");
+        builder.add(guide("https://quarkus.io/guides/core", Language.ENGLISH, "core", coreTopic,
+                "io.quarkus:quarkus-core"));
+        I18nData<String> quarkiverseTopic = new I18nData<>(Language.ENGLISH, "quarkiverse-topic");
+        quarkiverseTopic.set(Language.JAPANESE, "quarkiverse-topic-ja");
+        builder.add(guide("https://docs.quarkiverse.io/guide", null, "cloud", quarkiverseTopic,
+                "io.quarkiverse:quarkus-amazon-s3"));
+        var snapshot = builder.build();
+
+        assertThat(snapshot.versions()).containsExactly(QuarkusVersions.LATEST);
+        assertThat(snapshot.categories()).containsExactly("cloud", "core");
+        // Quarkiverse guides have no language, and thus show up for every language...
+        assertThat(snapshot.values(QuarkusVersions.LATEST, Language.ENGLISH))
+                .isEqualTo(new ReferenceSnapshot.Values(List.of("cloud", "core"),
+                        List.of("core-topic", "quarkiverse-topic"),
+                        List.of("io.quarkiverse:quarkus-amazon-s3", "io.quarkus:quarkus-core")));
+        // ... with their topics translated to that language, when a translation exists.
+        assertThat(snapshot.values(QuarkusVersions.LATEST, Language.JAPANESE))
+                .isEqualTo(new ReferenceSnapshot.Values(List.of("cloud"),
+                        List.of("quarkiverse-topic-ja"),
+                        List.of("io.quarkiverse:quarkus-amazon-s3")));
+        assertThat(snapshot.values(QuarkusVersions.LATEST, Language.SPANISH))
+                .isEqualTo(new ReferenceSnapshot.Values(List.of("cloud"),
+                        List.of(),
+                        List.of("io.quarkiverse:quarkus-amazon-s3")));
+    }
+}
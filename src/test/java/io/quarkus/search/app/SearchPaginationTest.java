@@ -0,0 +1,165 @@
+package io.quarkus.search.app;
+
+import static io.restassured.RestAssured.given;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import jakarta.inject.Inject;
+
+import io.quarkus.search.app.dto.GuideSearchHit;
+import io.quarkus.search.app.dto.SearchResult;
+import io.quarkus.search.app.testsupport.QuarkusIOSample;
+import io.quarkus.search.app.testsupport.SetupUtil;
+
+import io.quarkus.test.common.http.TestHTTPEndpoint;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+import org.hibernate.search.backend.elasticsearch.ElasticsearchBackend;
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import io.restassured.common.mapper.TypeRef;
+import io.restassured.specification.RequestSpecification;
+
+@QuarkusTest
+@TestProfile(SearchPaginationTest.Profile.class)
+@TestHTTPEndpoint(SearchService.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@QuarkusIOSample.Setup(filter = QuarkusIOSample.SearchServiceFilterDefinition.class)
+class SearchPaginationTest {
+    // Small pages, so that the sample spans multiple pages
+    public static class Profile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("search.page-size", "3");
+        }
+    }
+
+    private static final TypeRef<SearchResult<GuideSearchHit>> SEARCH_RESULT_SEARCH_HITS = new TypeRef<>() {
+    };
+    private static final String GUIDES_SEARCH = "/guides/search";
+
+    @Inject
+    SearchMapping searchMapping;
+
+    @BeforeAll
+    void setup() {
+        SetupUtil.waitForIndexing(getClass());
+    }
+
+    private SearchResult<GuideSearchHit> search(String cursor) {
+        return search(given(), cursor);
+    }
+
+    private SearchResult<GuideSearchHit> search(RequestSpecification request, String cursor) {
+        if (cursor != null) {
+            request = request.queryParam("cursor", cursor);
+        }
+        return request
+                .when().get(GUIDES_SEARCH)
+                .then()
+                .statusCode(200)
+                .extract().body().as(SEARCH_RESULT_SEARCH_HITS);
+    }
+
+    private static String pitId(String cursor) {
+        var json = new Gson().fromJson(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8),
+                JsonObject.class);
+        var pitId = json.get("p");
+        return pitId == null ? null : pitId.getAsString();
+    }
+
+    private Set<String> openPointsInTime() throws IOException {
+        var client = searchMapping.backend().unwrap(ElasticsearchBackend.class).client(RestClient.class);
+        var response = client.performRequest(new Request("GET", "/_search/point_in_time/_all"));
+        try (var input = response.getEntity().getContent()) {
+            var responseBody = new Gson().fromJson(new InputStreamReader(input, StandardCharsets.UTF_8),
+                    JsonObject.class);
+            Set<String> result = new HashSet<>();
+            responseBody.getAsJsonArray("pits")
+                    .forEach(pit -> result.add(pit.getAsJsonObject().get("pit_id").getAsString()));
+            return result;
+        }
+    }
+
+    @Test
+    void pointInTime() throws IOException {
+        // A search of our own, so that the first page doesn't come from the cache, filled by other tests.
+        Supplier<RequestSpecification> request = () -> given().queryParam("highlightCssClass", "pointInTime");
+        var firstPage = search(request.get(), null);
+        String pitId = pitId(firstPage.cursor());
+        // The first page gets served from a point-in-time already...
+        assertThat(pitId).isNotNull();
+        assertThat(openPointsInTime()).contains(pitId);
+
+        List<SearchResult<GuideSearchHit>> nextPages = new ArrayList<>();
+        String cursor = firstPage.cursor();
+        while (cursor != null) {
+            var page = search(request.get(), cursor);
+            nextPages.add(page);
+            cursor = page.cursor();
+        }
+        // ... and the point-in-time gets closed once the last page is served.
+        assertThat(openPointsInTime()).doesNotContain(pitId);
+
+        // Clients that got the same first page (from the cache) can still browse next pages, without the point-in-time.
+        assertThat(search(request.get(), null)).isEqualTo(firstPage);
+        assertThat(search(request.get(), firstPage.cursor()).hits()).isEqualTo(nextPages.get(0).hits());
+    }
+
+    @Test
+    void cursor() {
+        var firstPage = search(null);
+        assertThat(firstPage.hits()).hasSize(3);
+        assertThat(firstPage.cursor()).isNotNull();
+        long total = firstPage.total().exact();
+        assertThat(total).isGreaterThan(3);
+
+        List<URI> urls = new ArrayList<>();
+        firstPage.hits().forEach(hit -> urls.add(hit.url()));
+        String cursor = firstPage.cursor();
+        int pages = 1;
+        while (cursor != null) {
+            var page = search(cursor);
+            page.hits().forEach(hit -> urls.add(hit.url()));
+            cursor = page.cursor();
+            ++pages;
+            assertThat(pages).isLessThanOrEqualTo((int) total);
+        }
+        // Following cursors returns every hit exactly once.
+        assertThat(urls).doesNotHaveDuplicates().hasSize((int) total);
+        assertThat(pages).isGreaterThanOrEqualTo(2);
+        // The same hits as with offset-based pagination.
+        List<URI> urlsByOffset = new ArrayList<>();
+        for (int i = 0; i < pages; i++) {
+            given().queryParam("page", i)
+                    .when().get(GUIDES_SEARCH)
+                    .then().statusCode(200)
+                    .extract().body().as(SEARCH_RESULT_SEARCH_HITS)
+                    .hits().forEach(hit -> urlsByOffset.add(hit.url()));
+        }
+        assertThat(urls).containsExactlyElementsOf(urlsByOffset);
+    }
+}
@@ -3,16 +3,26 @@ package io.quarkus.search.app;
 import static io.restassured.RestAssured.given;
 import static io.restassured.RestAssured.when;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.endsWith;
 
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 
+import jakarta.inject.Inject;
+
+import io.quarkus.search.app.dto.GuideContentSnippets;
 import io.quarkus.search.app.dto.GuideSearchHit;
+import io.quarkus.search.app.dto.GuideSuggestion;
 import io.quarkus.search.app.dto.SearchResult;
 import io.quarkus.search.app.testsupport.GuideRef;
 import io.quarkus.search.app.testsupport.QuarkusIOSample;
@@ -32,9 +42,11 @@ import org.junit.jupiter.params.provider.ValueSource;
 import org.assertj.core.api.InstanceOfAssertFactories;
 import org.assertj.core.api.ThrowingConsumer;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import io.restassured.RestAssured;
 import io.restassured.common.mapper.TypeRef;
 import io.restassured.filter.log.LogDetail;
+import io.restassured.http.ContentType;
 
 @QuarkusTest
 @TestHTTPEndpoint(SearchService.class)
@@ -43,7 +55,19 @@ import io.restassured.filter.log.LogDetail;
 class SearchServiceTest {
     private static final TypeRef<SearchResult<GuideSearchHit>> SEARCH_RESULT_SEARCH_HITS = new TypeRef<>() {
     };
+    private static final TypeRef<List<SearchResult<GuideSearchHit>>> SEARCH_RESULTS_SEARCH_HITS = new TypeRef<>() {
+    };
+    private static final TypeRef<List<GuideContentSnippets>> CONTENT_SNIPPETS = new TypeRef<>() {
+    };
+    private static final TypeRef<List<GuideSuggestion>> SUGGESTIONS = new TypeRef<>() {
+    };
     private static final String GUIDES_SEARCH = "/guides/search";
+    private static final String GUIDES_SEARCH_BATCH = "/guides/search/batch";
+    private static final String GUIDES_SNIPPETS = "/guides/snippets";
+    private static final String GUIDES_SUGGEST = "/guides/suggest";
+
+    @Inject
+    MeterRegistry meterRegistry;
 
     private SearchResult<GuideSearchHit> search(String term) {
         return given()
@@ -144,6 +168,188 @@ class SearchServiceTest {
                 .containsExactlyInAnyOrder(GuideRef.urls(QuarkusIOSample.SearchServiceFilterDefinition.guides()));
     }
 
+    @Test
+    void queryNormalized() {
+        // Cached results are shared between queries that only differ by case or surrounding spaces,
+        // so those must be bound to return the same results.
+        assertThat(search("  ORM ")).isEqualTo(search("orm"));
+    }
+
+    @Test
+    void concurrentIdenticalQueries() {
+        var requests = meterRegistry.counter("search.requests", "cache", "search-cache");
+        var executions = meterRegistry.counter("search.executions", "cache", "search-cache");
+        var coalesced = meterRegistry.counter("search.coalesced", "cache", "search-cache");
+        double requestsBefore = requests.count();
+        double executionsBefore = executions.count();
+        double coalescedBefore = coalesced.count();
+        var executor = Executors.newFixedThreadPool(10);
+        try {
+            // A query that no other test uses, so that results are not cached yet.
+            var futures = IntStream.range(0, 10)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(() -> search("orm panache kotlin"), executor))
+                    .toList();
+            var results = futures.stream().map(CompletableFuture::join).toList();
+            assertThat(results).allSatisfy(result -> assertThat(result).isEqualTo(results.get(0)));
+        } finally {
+            executor.shutdown();
+        }
+        // Concurrent requests waited for the same execution (coalesced), or later got its result from the cache.
+        assertThat(requests.count() - requestsBefore).isEqualTo(10);
+        assertThat(executions.count() - executionsBefore).isEqualTo(1);
+        assertThat(coalesced.count() - coalescedBefore).isBetween(0.0, 9.0);
+
+        // Once the execution is over, identical requests are plain cache hits, not coalesced requests.
+        double coalescedAfter = coalesced.count();
+        search("orm panache kotlin");
+        assertThat(requests.count() - requestsBefore).isEqualTo(11);
+        assertThat(executions.count() - executionsBefore).isEqualTo(1);
+        assertThat(coalesced.count()).isEqualTo(coalescedAfter);
+    }
+
+    @Test
+    void conditionalRequest() {
+        var etag = given()
+                .queryParam("q", "orm")
+                .when().get(GUIDES_SEARCH)
+                .then()
+                .statusCode(200)
+                .header("Content-Location", endsWith(GUIDES_SEARCH + "?q=orm"))
+                .extract().header("ETag");
+        assertThat(etag).isNotBlank();
+        // Equivalent query: same ETag
+        given()
+                .queryParam("q", " ORM ")
+                .queryParam("language", "en")
+                .header("If-None-Match", etag)
+                .when().get(GUIDES_SEARCH)
+                .then()
+                .statusCode(304);
+        // Different query: different ETag
+        given()
+                .queryParam("q", "orm")
+                .queryParam("categories", "alt-languages")
+                .header("If-None-Match", etag)
+                .when().get(GUIDES_SEARCH)
+                .then()
+                .statusCode(200);
+    }
+
+    @Test
+    void cursor_noMoreHits() {
+        var result = search("orm");
+        // All hits fit in a single page: there's no next page to point to.
+        assertThat(result.cursor()).isNull();
+    }
+
+    @Test
+    void cursor_invalid() {
+        given()
+                .queryParam("q", "orm")
+                .queryParam("cursor", "notacursor")
+                .when().get(GUIDES_SEARCH)
+                .then()
+                .statusCode(400);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            // Not an index generation
+            "{\"i\":\"guide-read\",\"a\":[1.0,\"a\",\"b\"]}",
+            // Not a guide index
+            "{\"i\":\"_all\",\"a\":[1.0,\"a\",\"b\"]}",
+            "{\"i\":\"guide-000001/_doc/foo?\",\"a\":[1.0,\"a\",\"b\"]}",
+            // Index generation that doesn't exist (anymore)
+            "{\"i\":\"guide-999999\",\"a\":[1.0,\"a\",\"b\"]}",
+            // Malformed point-in-time
+            "{\"i\":\"guide-000001\",\"p\":\"not a point-in-time\",\"a\":[1.0,\"a\",\"b\"]}",
+            // Malformed sort values
+            "{\"i\":\"guide-000001\",\"a\":[]}",
+            "{\"i\":\"guide-000001\",\"a\":[\"a\",\"b\",\"c\"]}",
+            "{\"i\":\"guide-000001\",\"a\":[1.0,{},\"b\"]}"
+    })
+    void cursor_rejected(String json) {
+        given()
+                .queryParam("q", "orm")
+                .queryParam("cursor", Base64.getUrlEncoder().withoutPadding()
+                        .encodeToString(json.getBytes(StandardCharsets.UTF_8)))
+                .when().get(GUIDES_SEARCH)
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void batch() {
+        var result = given()
+                .contentType(ContentType.JSON)
+                .body("""
+                        [
+                            { "q": "orm elasticsearch" },
+                            { "q": "orm", "categories": ["alt-languages"] },
+                            { "q": "termnotmatching" }
+                        ]
+                        """)
+                .when().post(GUIDES_SEARCH_BATCH)
+                .then()
+                .statusCode(200)
+                .extract().body().as(SEARCH_RESULTS_SEARCH_HITS);
+        // Results are returned in the same order as specs, and are the same as with separate searches
+        assertThat(result).containsExactly(
+                search("orm elasticsearch"),
+                given()
+                        .queryParam("q", "orm")
+                        .queryParam("categories", "alt-languages")
+                        .when().get(GUIDES_SEARCH)
+                        .then()
+                        .statusCode(200)
+                        .extract().body().as(SEARCH_RESULT_SEARCH_HITS),
+                search("termnotmatching"));
+    }
+
+    @Test
+    void batch_invalidSpec() {
+        given()
+                .contentType(ContentType.JSON)
+                .body("""
+                        [
+                            { "q": "orm" },
+                            { "q": "orm", "contentSnippets": 50 }
+                        ]
+                        """)
+                .when().post(GUIDES_SEARCH_BATCH)
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void suggest() {
+        var result = given()
+                .queryParam("q", "hiber")
+                .when().get(GUIDES_SUGGEST)
+                .then()
+                .statusCode(200)
+                .extract().body().as(SUGGESTIONS);
+        assertThat(result).hasSizeLessThanOrEqualTo(10)
+                .extracting(GuideSuggestion::url)
+                .contains(GuideRef.urls(
+                        GuideRef.HIBERNATE_ORM,
+                        GuideRef.HIBERNATE_SEARCH_ORM_ELASTICSEARCH));
+        assertThat(result).extracting(GuideSuggestion::title)
+                // No highlighting for suggestions
+                .noneMatch(title -> title.contains("<span"));
+    }
+
+    @Test
+    void suggest_emptyQuery() {
+        var result = given()
+                .queryParam("q", " ")
+                .when().get(GUIDES_SUGGEST)
+                .then()
+                .statusCode(200)
+                .extract().body().as(SUGGESTIONS);
+        assertThat(result).isEmpty();
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {
             "https://quarkus.io",
@@ -318,6 +524,48 @@ class SearchServiceTest {
                 GuideRef.HIBERNATE_ORM_PANACHE_KOTLIN));
     }
 
+    @Test
+    void facets() {
+        var result = given()
+                .queryParam("q", "orm")
+                .queryParam("facets", "true")
+                .when().get(GUIDES_SEARCH)
+                .then()
+                .statusCode(200)
+                .extract().body().as(SEARCH_RESULT_SEARCH_HITS);
+        assertThat(result.facets()).isNotNull();
+        // Same as searching with that category, see #categories()
+        assertThat(result.facets().categories()).containsEntry("alt-languages", 1L);
+        assertThat(result.facets().topics()).isNotEmpty();
+        assertThat(result.facets().extensions()).isNotEmpty();
+
+        assertThat(search("orm").facets()).isNull();
+    }
+
+    @Test
+    void facets_categories() {
+        var unfiltered = given()
+                .queryParam("q", "orm")
+                .queryParam("facets", "true")
+                .when().get(GUIDES_SEARCH)
+                .then()
+                .statusCode(200)
+                .extract().body().as(SEARCH_RESULT_SEARCH_HITS);
+        var result = given()
+                .queryParam("q", "orm")
+                .queryParam("categories", "alt-languages")
+                .queryParam("facets", "true")
+                .when().get(GUIDES_SEARCH)
+                .then()
+                .statusCode(200)
+                .extract().body().as(SEARCH_RESULT_SEARCH_HITS);
+        // Hits are filtered on the selected category...
+        assertThat(result.hits()).extracting(GuideSearchHit::url).containsExactlyInAnyOrder(GuideRef.urls(
+                GuideRef.HIBERNATE_ORM_PANACHE_KOTLIN));
+        // ... but the categories facet still lists other categories, with the same counts as without the filter.
+        assertThat(result.facets().categories()).isEqualTo(unfiltered.facets().categories());
+    }
+
     @Test
     void highlight_title() {
         var result = given()
@@ -367,6 +615,57 @@ class SearchServiceTest {
         assertThat(matches.get()).isEqualTo(10);
     }
 
+    @Test
+    void highlight_content_zeroSnippets() {
+        var result = given()
+                .queryParam("q", "orm")
+                .queryParam("highlightCssClass", "highlighted-content")
+                .queryParam("contentSnippets", "0")
+                .when().get(GUIDES_SEARCH)
+                .then()
+                .statusCode(200)
+                .extract().body().as(SEARCH_RESULT_SEARCH_HITS);
+        // Zero snippets means highlighting the whole content, not skipping it.
+        assertThat(result.hits()).extracting(GuideSearchHit::content).hasSize(9)
+                .allSatisfy(content -> assertThat(content).hasSize(1)
+                        .allSatisfy(snippet -> assertThat(snippet)
+                                .hasSizeGreaterThan(200)
+                                .contains("<span class=\"highlighted-content\">")));
+    }
+
+    @Test
+    void highlight_content_deferred() {
+        var result = given()
+                .queryParam("q", "orm")
+                .queryParam("deferContentSnippets", "true")
+                .when().get(GUIDES_SEARCH)
+                .then()
+                .statusCode(200)
+                .extract().body().as(SEARCH_RESULT_SEARCH_HITS);
+        assertThat(result.hits()).extracting(GuideSearchHit::content).hasSize(9)
+                .allSatisfy(content -> assertThat(content).isEmpty());
+
+        var urls = result.hits().stream().map(GuideSearchHit::url).toList();
+        var snippets = given()
+                .queryParam("q", "orm")
+                .queryParam("url", urls)
+                .queryParam("highlightCssClass", "highlighted-content")
+                .queryParam("contentSnippets", "1")
+                .queryParam("contentSnippetsLength", "50")
+                .when().get(GUIDES_SNIPPETS)
+                .then()
+                .statusCode(200)
+                .extract().body().as(CONTENT_SNIPPETS);
+
+        // Same snippets as when computed along with search results, in the requested order
+        assertThat(snippets).extracting(GuideContentSnippets::url).containsExactlyElementsOf(urls);
+        AtomicInteger matches = new AtomicInteger(0);
+        assertThat(snippets).extracting(GuideContentSnippets::content)
+                .allSatisfy(content -> assertThat(content).hasSize(1)
+                        .allSatisfy(hitsHaveCorrectWordHighlighted(matches, "orm", "highlighted-content")));
+        assertThat(matches.get()).isEqualTo(10);
+    }
+
     @Test
     void highlight_content_tooManySnippets() {
         given()
@@ -0,0 +1,242 @@
+package io.quarkus.search.app.indexing;
+
+import static io.restassured.RestAssured.when;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import jakarta.inject.Inject;
+
+import io.quarkus.search.app.QuarkusVersions;
+import io.quarkus.search.app.entity.Guide;
+import io.quarkus.search.app.entity.Language;
+import io.quarkus.search.app.testsupport.QuarkusIOSample;
+import io.quarkus.search.app.testsupport.SetupUtil;
+
+import io.quarkus.narayana.jta.QuarkusTransaction;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+
+import org.hibernate.search.backend.elasticsearch.ElasticsearchBackend;
+import org.hibernate.search.backend.elasticsearch.index.ElasticsearchIndexManager;
+import org.hibernate.search.mapper.orm.mapping.SearchMapping;
+import org.hibernate.search.mapper.orm.session.SearchSession;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import org.awaitility.Awaitility;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.RestClient;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+@QuarkusTest
+@TestProfile(IncrementalIndexingTest.Profile.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@QuarkusIOSample.Setup(filter = QuarkusIOSample.SearchServiceFilterDefinition.class)
+class IncrementalIndexingTest {
+    // We trigger indexing explicitly, and this profile makes sure this won't affect other tests
+    public static class Profile implements QuarkusTestProfile {
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            return Map.of("indexing.on-startup.when", "never");
+        }
+    }
+
+    @Inject
+    SearchMapping searchMapping;
+    @Inject
+    SearchSession searchSession;
+    @Inject
+    IndexGeneration indexGeneration;
+
+    private String reindexUrl() {
+        return "http://localhost:" + SetupUtil.managementPort(getClass()) + "/reindex";
+    }
+
+    private long documentCount() {
+        return QuarkusTransaction.requiringNew().call(
+                () -> searchSession.search(Guide.class).where(f -> f.matchAll()).fetchTotalHitCount());
+    }
+
+    private long fullContentAutocompleteMatchCount() {
+        return QuarkusTransaction.requiringNew().call(
+                () -> searchSession.search(Guide.class)
+                        .where(f -> f.match().field("fullContent_autocomplete_en").matching("hiber"))
+                        .fetchTotalHitCount());
+    }
+
+    @Test
+    void noChanges() {
+        when().get(reindexUrl()).then().statusCode(200);
+        var fullIndexingMetadata = IndexMetadata.read(searchMapping);
+        assertThat(fullIndexingMetadata).hasValueSatisfying(metadata -> assertThat(metadata.revisions())
+                .containsKeys("en/sources", "en/pages"));
+        long documentCount = documentCount();
+        assertThat(documentCount).isPositive();
+
+        when().get(reindexUrl() + "?mode=incremental").then().statusCode(200);
+        // Nothing changed in git: same content, and no full indexing happened.
+        assertThat(IndexMetadata.read(searchMapping)).isEqualTo(fullIndexingMetadata);
+        assertThat(documentCount()).isEqualTo(documentCount);
+    }
+
+    @Test
+    void generation() {
+        when().get(reindexUrl()).then().statusCode(200);
+        String generation = indexGeneration.current();
+        var index = searchMapping.indexedEntity(Guide.class).indexManager()
+                .unwrap(ElasticsearchIndexManager.class).descriptor();
+        // Derived from the name of the live index; concrete index names are normalized to lowercase.
+        assertThat(generation).matches(Pattern.quote(index.hibernateSearchName().toLowerCase(Locale.ROOT)) + "-\\d{6}\\.\\d+");
+        // Another instance of the application, or this one after a restart, sees the same generation.
+        assertThat(otherInstanceGeneration()).isEqualTo(generation);
+
+        when().get(reindexUrl() + "?mode=incremental").then().statusCode(200);
+        // Nothing changed in git: same content, same generation, even though index metadata got written again.
+        assertThat(indexGeneration.current()).isEqualTo(generation);
+        assertThat(otherInstanceGeneration()).isEqualTo(generation);
+
+        when().get(reindexUrl()).then().statusCode(200);
+        assertThat(indexGeneration.current()).isNotEqualTo(generation);
+        assertThat(otherInstanceGeneration()).isEqualTo(indexGeneration.current());
+    }
+
+    private String otherInstanceGeneration() {
+        var otherInstance = new IndexGeneration();
+        otherInstance.searchMapping = searchMapping;
+        otherInstance.refresh();
+        return otherInstance.current();
+    }
+
+    @Test
+    void fullReindexCopiesUnchanged() {
+        when().get(reindexUrl()).then().statusCode(200);
+        long documentCount = documentCount();
+        long autocompleteMatchCount = fullContentAutocompleteMatchCount();
+        assertThat(autocompleteMatchCount).isPositive();
+
+        // Nothing changed: documents get copied from the previous index, and must be identical.
+        when().get(reindexUrl()).then().statusCode(200);
+        assertThat(documentCount()).isEqualTo(documentCount);
+        // This field is excluded from _source, so must be restored explicitly when copying.
+        assertThat(fullContentAutocompleteMatchCount()).isEqualTo(autocompleteMatchCount);
+    }
+
+    @Test
+    void job() {
+        String location = when().post(reindexUrl() + "?mode=full")
+                .then().statusCode(202)
+                .extract().header("Location");
+        String jobUrl = "http://localhost:" + SetupUtil.managementPort(getClass()) + location;
+        Awaitility.await().timeout(Duration.ofMinutes(1))
+                .untilAsserted(() -> assertThat(when().get(jobUrl).then().statusCode(200)
+                        .extract().<String> path("state")).isEqualTo("succeeded"));
+        assertThat(when().get(jobUrl).then().extract().<Integer> path("documentsProcessed")).isPositive();
+        assertThat(documentCount()).isPositive();
+
+        // Too late to cancel.
+        when().delete(jobUrl).then().statusCode(409);
+        when().get(reindexUrl() + "/jobs/does-not-exist").then().statusCode(404);
+    }
+
+    @Test
+    void invalidMode() {
+        when().get(reindexUrl() + "?mode=partial").then().statusCode(400);
+    }
+
+    @Test
+    void slice() {
+        when().get(reindexUrl()).then().statusCode(200);
+        long documentCount = documentCount();
+
+        // A guide that no longer exists, but is still in the indexes.
+        var staleGuide = new Guide();
+        staleGuide.url = URI.create("https://quarkus.io/guides/does-not-exist");
+        staleGuide.quarkusVersion = QuarkusVersions.LATEST;
+        staleGuide.language = Language.ENGLISH;
+        staleGuide.origin = "quarkus";
+        QuarkusTransaction.requiringNew().run(() -> searchSession.indexingPlan().addOrUpdate(staleGuide));
+        searchMapping.scope(Guide.class).workspace().refresh();
+        assertThat(documentCount()).isEqualTo(documentCount + 1);
+
+        // Guides of the slice get indexed again, and the stale one gets deleted.
+        when().get(reindexUrl() + "?version=" + QuarkusVersions.LATEST + "&language=en&origin=quarkus")
+                .then().statusCode(200);
+        assertThat(documentCount()).isEqualTo(documentCount);
+    }
+
+    @Test
+    void slice_retainedGeneration() throws IOException {
+        when().get(reindexUrl()).then().statusCode(200);
+        long documentCount = documentCount();
+
+        // A guide that no longer exists, but is still in the indexes, including a retained generation.
+        var staleGuide = new Guide();
+        staleGuide.url = URI.create("https://quarkus.io/guides/does-not-exist");
+        staleGuide.quarkusVersion = QuarkusVersions.LATEST;
+        staleGuide.language = Language.ENGLISH;
+        staleGuide.origin = "quarkus";
+        QuarkusTransaction.requiringNew().run(() -> searchSession.indexingPlan().addOrUpdate(staleGuide));
+        searchMapping.scope(Guide.class).workspace().refresh();
+        when().get(reindexUrl()).then().statusCode(200);
+        var client = searchMapping.backend().unwrap(ElasticsearchBackend.class).client(RestClient.class);
+        var index = searchMapping.indexedEntity(Guide.class).indexManager()
+                .unwrap(ElasticsearchIndexManager.class).descriptor();
+        var gson = new Gson();
+        String live = Rollover.aliased(client, gson, List.of(index)).iterator().next().writeAliasedIndexes()
+                .iterator().next();
+        // No rollback happened: the latest generation before the live one is the one we just retained.
+        String retained = Rollover.generations(client, gson, index).values().stream()
+                .filter(name -> !name.equals(live))
+                .reduce((first, second) -> second)
+                .orElseThrow();
+        // Simulate a generation retained by an older version of this application,
+        // which left it behind the write alias (as a non-write index).
+        var addAlias = new Request("POST", "/_aliases");
+        addAlias.setJsonEntity("""
+                {"actions": [{"add": {"index": "%s", "alias": "%s", "is_write_index": false}}]}
+                """.formatted(retained, index.writeName()));
+        client.performRequest(addAlias);
+        try {
+            QuarkusTransaction.requiringNew().run(() -> searchSession.indexingPlan().addOrUpdate(staleGuide));
+            searchMapping.scope(Guide.class).workspace().refresh();
+            assertThat(documentCount()).isEqualTo(documentCount + 1);
+
+            // The stale guide gets deleted from the live index,
+            // while the (write-blocked) retained generation is left alone.
+            when().get(reindexUrl() + "?version=" + QuarkusVersions.LATEST + "&language=en&origin=quarkus")
+                    .then().statusCode(200);
+            assertThat(documentCount()).isEqualTo(documentCount);
+            var count = new Request("GET", "/" + retained + "/_count");
+            count.addParameter("q", "_id:\"" + staleGuide.url + "\"");
+            try (var input = client.performRequest(count).getEntity().getContent()) {
+                assertThat(gson.fromJson(new InputStreamReader(input, StandardCharsets.UTF_8), JsonObject.class)
+                        .get("count").getAsLong()).isEqualTo(1L);
+            }
+        } finally {
+            var removeAlias = new Request("POST", "/_aliases");
+            removeAlias.setJsonEntity("""
+                    {"actions": [{"remove": {"index": "%s", "alias": "%s"}}]}
+                    """.formatted(retained, index.writeName()));
+            client.performRequest(removeAlias);
+        }
+    }
+
+    @Test
+    void invalidSlice() {
+        when().get(reindexUrl() + "?language=klingon").then().statusCode(400);
+        when().get(reindexUrl() + "?language=en&mode=full").then().statusCode(400);
+    }
+}
@@ -2,10 +2,16 @@ package io.quarkus.search.app.indexing;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.OptionalInt;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -35,6 +41,7 @@ import org.elasticsearch.client.Request;
 import org.elasticsearch.client.RestClient;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
 
 @QuarkusTest
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
@@ -44,7 +51,8 @@ class RolloverTest {
     public static class Profile implements QuarkusTestProfile {
         @Override
         public Map<String, String> getConfigOverrides() {
-            return Map.of("indexing.on-startup.when", "never");
+            return Map.of("indexing.on-startup.when", "never",
+                    "indexing.retention.generations", "1");
         }
     }
 
@@ -54,6 +62,8 @@ class RolloverTest {
     SearchMapping searchMapping;
     @Inject
     SearchSession searchSession;
+    @Inject
+    IndexingConfig indexingConfig;
     RestClient client;
 
     @PostConstruct
@@ -75,6 +85,29 @@ class RolloverTest {
         }
     }
 
+    private NavigableMap<Integer, String> generations(SearchIndexedEntity<?> entity) {
+        try {
+            return Rollover.generations(client, gson, index(entity));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void assertNotAliased(int generation) {
+        // Retained generations must not be behind any alias, not even as a non-write index of the write alias
+        String indexName = String.format("guide-%06d", generation);
+        try {
+            var response = client.performRequest(new Request("GET", "/" + indexName + "/_alias"));
+            try (var input = response.getEntity().getContent()) {
+                var responseBody = gson.fromJson(new InputStreamReader(input, StandardCharsets.UTF_8), JsonObject.class);
+                assertThat(responseBody.getAsJsonObject(indexName).getAsJsonObject("aliases").keySet())
+                        .isEmpty();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     private void assertWriteTargetsIndex(int writeIndex) {
         // Search targets the read index, and the read index must be the one we expect
         var aliased = aliased(searchMapping.indexedEntity(Guide.class));
@@ -102,14 +135,14 @@ class RolloverTest {
 
     @AfterEach
     void deleteAllIndexes() {
-        Set<String> aliasedIndexes = searchMapping.allIndexedEntities().stream()
-                .map(this::aliased)
-                .map(Rollover.GetAliasedResult::allAliasedIndexes)
-                .flatMap(Set::stream)
+        // Includes retained generations, which are not behind any alias
+        Set<String> allIndexes = searchMapping.allIndexedEntities().stream()
+                .map(this::generations)
+                .flatMap(generations -> generations.values().stream())
                 .collect(Collectors.toSet());
-        if (!aliasedIndexes.isEmpty()) {
+        if (!allIndexes.isEmpty()) {
             try {
-                client.performRequest(new Request("DELETE", "/" + String.join(",", aliasedIndexes)));
+                client.performRequest(new Request("DELETE", "/" + String.join(",", allIndexes)));
             } catch (IOException e) {
                 throw new IllegalStateException(e);
             }
@@ -184,4 +217,62 @@ class RolloverTest {
         assertWriteTargetsIndex(2);
     }
 
+    @Test
+    void metadataOnRollback() {
+        var liveMetadata = new IndexMetadata(Instant.parse("2024-01-01T00:00:00Z"), Map.of("en/sources", "live"));
+        liveMetadata.write(searchMapping);
+
+        try (Rollover rollover = Rollover.start(searchMapping)) {
+            new IndexMetadata(Instant.parse("2024-02-01T00:00:00Z"), Map.of("en/sources", "new"))
+                    .write(searchMapping);
+            // The live index must keep describing its own content until the rollover gets committed...
+            assertThat(IndexMetadata.read(searchMapping)).contains(liveMetadata);
+        }
+
+        // ... so that it's still accurate if the rollover gets rolled back.
+        assertSearchWorksAndTargetsIndex(1);
+        assertThat(IndexMetadata.read(searchMapping)).contains(liveMetadata);
+    }
+
+    @Test
+    void rollBackToRetainedGeneration() {
+        assertSearchWorksAndTargetsIndex(1);
+        assertWriteTargetsIndex(1);
+
+        try (Rollover rollover = Rollover.start(searchMapping, indexingConfig)) {
+            rollover.commit();
+        }
+        assertSearchWorksAndTargetsIndex(2);
+        assertWriteTargetsIndex(2);
+        assertThat(generations(searchMapping.indexedEntity(Guide.class))).containsOnlyKeys(1, 2);
+        assertNotAliased(1);
+
+        assertThat(Rollover.rollBackTo(searchMapping, OptionalInt.empty())).contains("guide-000001");
+        assertSearchWorksAndTargetsIndex(1);
+        assertWriteTargetsIndex(1);
+        assertNotAliased(2);
+
+        // The next rollover must not collide with the generation we rolled back from...
+        try (Rollover rollover = Rollover.start(searchMapping, indexingConfig)) {
+            assertSearchWorksAndTargetsIndex(1);
+            assertWriteTargetsIndex(3);
+            rollover.commit();
+        }
+        assertSearchWorksAndTargetsIndex(3);
+        assertWriteTargetsIndex(3);
+        // ... and since we only retain one generation, we keep the one that was live most recently
+        // (the one we rolled back to), not the one with the highest number (the one we rolled back from).
+        assertThat(generations(searchMapping.indexedEntity(Guide.class))).containsOnlyKeys(1, 3);
+        assertNotAliased(1);
+
+        assertThat(Rollover.rollBackTo(searchMapping, OptionalInt.of(1))).contains("guide-000001");
+        assertSearchWorksAndTargetsIndex(1);
+        assertWriteTargetsIndex(1);
+        assertNotAliased(3);
+
+        assertThatThrownBy(() -> Rollover.rollBackTo(searchMapping, OptionalInt.of(2)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("does not exist");
+    }
+
 }
@@ -0,0 +1,118 @@
+package io.quarkus.search.app.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BlobStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private static String read(BlobStore.Blob blob) throws IOException {
+        try (InputStream input = blob.open()) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void putAndGet() throws IOException {
+        String firstId;
+        String secondId;
+        try (BlobStore store = BlobStore.open(directory)) {
+            var first = store.put("first".getBytes(StandardCharsets.UTF_8));
+            var second = store.put("second".getBytes(StandardCharsets.UTF_8));
+            assertThat(store.put("first".getBytes(StandardCharsets.UTF_8))).isSameAs(first);
+            assertThat(read(first)).isEqualTo("first");
+            assertThat(read(second)).isEqualTo("second");
+            assertThat(second.size()).isEqualTo(6);
+            assertThat(store.put(new byte[0]).size()).isZero();
+            firstId = first.id();
+            secondId = second.id();
+        }
+        assertThat(Files.size(directory.resolve("blobs.pack"))).isEqualTo("firstsecond".length());
+
+        // Blobs are kept in the directory.
+        try (BlobStore store = BlobStore.open(directory)) {
+            assertThat(read(store.get(firstId))).isEqualTo("first");
+            assertThat(read(store.get(secondId))).isEqualTo("second");
+            assertThat(store.get("0".repeat(64))).isNull();
+        }
+    }
+
+    @Test
+    void partialWrite() throws IOException {
+        String firstId;
+        String secondId;
+        try (BlobStore store = BlobStore.open(directory)) {
+            firstId = store.put("first".getBytes(StandardCharsets.UTF_8)).id();
+            secondId = store.put("second".getBytes(StandardCharsets.UTF_8)).id();
+        }
+        // Simulate a crash while writing the second blob.
+        try (var pack = Files.newByteChannel(directory.resolve("blobs.pack"), StandardOpenOption.WRITE)) {
+            pack.truncate("firstsec".length());
+        }
+
+        try (BlobStore store = BlobStore.open(directory)) {
+            assertThat(read(store.get(firstId))).isEqualTo("first");
+            assertThat(store.get(secondId)).isNull();
+            assertThat(read(store.put("second".getBytes(StandardCharsets.UTF_8)))).isEqualTo("second");
+        }
+        try (BlobStore store = BlobStore.open(directory)) {
+            assertThat(read(store.get(secondId))).isEqualTo("second");
+        }
+    }
+
+    @Test
+    void compact() throws IOException {
+        String firstId;
+        String secondId;
+        String thirdId;
+        try (BlobStore store = BlobStore.open(directory)) {
+            firstId = store.put("first".getBytes(StandardCharsets.UTF_8)).id();
+            secondId = store.put("second".getBytes(StandardCharsets.UTF_8)).id();
+            thirdId = store.put("third".getBytes(StandardCharsets.UTF_8)).id();
+        }
+
+        BlobStore.compact(directory, Set.of(firstId, thirdId, "0".repeat(64)));
+        assertThat(Files.size(directory.resolve("blobs.pack"))).isEqualTo("firstthird".length());
+        try (BlobStore store = BlobStore.open(directory)) {
+            assertThat(read(store.get(firstId))).isEqualTo("first");
+            assertThat(store.get(secondId)).isNull();
+            assertThat(read(store.get(thirdId))).isEqualTo("third");
+            // New blobs get appended after retained ones.
+            assertThat(read(store.put("second".getBytes(StandardCharsets.UTF_8)))).isEqualTo("second");
+        }
+        try (BlobStore store = BlobStore.open(directory)) {
+            assertThat(read(store.get(secondId))).isEqualTo("second");
+            assertThat(read(store.get(thirdId))).isEqualTo("third");
+        }
+
+        // Nothing to drop: files are left untouched.
+        BlobStore.compact(directory, Set.of(firstId, secondId, thirdId));
+        assertThat(Files.size(directory.resolve("blobs.pack"))).isEqualTo("firstthirdsecond".length());
+        assertThat(directory.resolve("blobs.pack.tmp")).doesNotExist();
+    }
+
+    @Test
+    void corruption() throws IOException {
+        String id;
+        try (BlobStore store = BlobStore.open(directory)) {
+            id = store.put("content".getBytes(StandardCharsets.UTF_8)).id();
+        }
+        Files.writeString(directory.resolve("blobs.pack"), "CONTENT");
+
+        try (BlobStore store = BlobStore.open(directory)) {
+            assertThat(store.get(id)).isNull();
+        }
+    }
+}
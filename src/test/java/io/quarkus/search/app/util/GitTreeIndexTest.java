@@ -0,0 +1,67 @@
+package io.quarkus.search.app.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.revwalk.RevTree;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+
+class GitTreeIndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sameResultsAsTreeWalk() throws IOException, GitAPIException {
+        try (Git git = Git.init().setDirectory(directory.toFile()).setInitialBranch("main").call()) {
+            for (String path : new String[] { "README.md", "docs/a.html", "docs/b/c.html", "docs-old/d.html",
+                    "docs.html", "é/ü.html" }) {
+                Path file = directory.resolve(path);
+                Files.createDirectories(file.getParent());
+                Files.writeString(file, "content of " + path);
+            }
+            git.add().addFilepattern(".").call();
+            var commit = git.commit().setMessage("init").setSign(false)
+                    .setAuthor("test", "test@example.com").setCommitter("test", "test@example.com").call();
+            var repo = git.getRepository();
+            RevTree tree = GitUtils.revTree(repo, commit.getId());
+
+            var index = GitTreeIndex.of(repo, tree);
+            assertThat(index.size()).isEqualTo(6);
+            assertThat(GitTreeIndex.of(repo, tree)).isSameAs(index);
+
+            for (String path : new String[] { "README.md", "docs/b/c.html", "docs.html", "é/ü.html" }) {
+                try (TreeWalk treeWalk = TreeWalk.forPath(repo, path, tree)) {
+                    assertThat(index.find(path)).isEqualTo(treeWalk.getObjectId(0));
+                }
+            }
+            assertThat(index.find("docs")).isNull();
+            assertThat(index.find("missing.html")).isNull();
+
+            assertThat(index.paths("docs"))
+                    .containsExactly("docs/a.html", "docs/b/c.html");
+            try (TreeWalk treeWalk = new TreeWalk(repo)) {
+                treeWalk.addTree(tree);
+                treeWalk.setRecursive(true);
+                treeWalk.setFilter(PathFilter.create("docs"));
+                int count = 0;
+                while (treeWalk.next()) {
+                    ++count;
+                }
+                assertThat(index.paths("docs")).hasSize(count);
+            }
+
+            GitTreeIndex.evict(tree);
+            assertThat(GitTreeIndex.of(repo, tree)).isNotSameAs(index);
+        }
+    }
+}
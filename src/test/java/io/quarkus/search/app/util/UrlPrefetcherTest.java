@@ -0,0 +1,154 @@
+package io.quarkus.search.app.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import io.quarkus.search.app.indexing.FailureCollector;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class UrlPrefetcherTest {
+
+    private static final String ETAG = "\"v1\"";
+    private static final String CONTENT = "<html><body>Some Quarkiverse guide</body></html>";
+
+    @TempDir
+    Path directory;
+
+    private HttpServer server;
+    // Request path, then If-None-Match header
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/guide", this::respond);
+        server.createContext("/copy", this::respond);
+        server.createContext("/missing", exchange -> {
+            requests.add(exchange.getRequestURI().getPath());
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+        requests.add(exchange.getRequestURI().getPath() + " " + ifNoneMatch);
+        if (ETAG.equals(ifNoneMatch)) {
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        byte[] body = CONTENT.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("ETag", ETAG);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+
+    private URI uri(String pathAndQuery) {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + pathAndQuery);
+    }
+
+    private static String read(BlobStore.Blob blob) throws IOException {
+        try (var input = blob.open()) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private UrlPrefetcher prefetcher() throws IOException {
+        return new UrlPrefetcher(CloseableDirectory.of(directory), 2, Duration.ofSeconds(10), new FailureCollector());
+    }
+
+    @Test
+    void canonical() {
+        assertThat(UrlPrefetcher.canonical(URI.create("https://docs.quarkiverse.io/guide?quarkusDocVersion=3.8")))
+                .isEqualTo(URI.create("https://docs.quarkiverse.io/guide"));
+        assertThat(UrlPrefetcher.canonical(URI.create("https://docs.quarkiverse.io/guide?a=b&quarkusDocVersion=3.8#c")))
+                .isEqualTo(URI.create("https://docs.quarkiverse.io/guide?a=b#c"));
+    }
+
+    @Test
+    void deduplicateAndRevalidate() throws IOException {
+        try (UrlPrefetcher prefetcher = prefetcher()) {
+            var first = prefetcher.prefetch(uri("/guide?quarkusDocVersion=3.8"));
+            var second = prefetcher.prefetch(uri("/guide?quarkusDocVersion=latest"));
+            assertThat(second).isSameAs(first);
+            assertThat(read(first.join())).isEqualTo(CONTENT);
+        }
+        assertThat(requests).containsExactly("/guide null");
+
+        // Content is kept in the directory, and reused as long as it didn't change.
+        try (UrlPrefetcher prefetcher = prefetcher()) {
+            var blob = prefetcher.prefetch(uri("/guide?quarkusDocVersion=3.8")).join();
+            assertThat(read(blob)).isEqualTo(CONTENT);
+        }
+        assertThat(requests).containsExactly("/guide null", "/guide " + ETAG);
+    }
+
+    @Test
+    void identicalContentStoredOnce() throws IOException {
+        try (UrlPrefetcher prefetcher = prefetcher()) {
+            var guide = prefetcher.prefetch(uri("/guide")).join();
+            var copy = prefetcher.prefetch(uri("/copy")).join();
+            assertThat(copy.id()).isEqualTo(guide.id());
+            assertThat(read(copy)).isEqualTo(CONTENT);
+        }
+        assertThat(Files.size(directory.resolve("blobs.pack")))
+                .isEqualTo(CONTENT.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    @Test
+    void unreferencedContentDropped() throws IOException {
+        try (UrlPrefetcher prefetcher = prefetcher()) {
+            prefetcher.prefetch(uri("/guide")).join();
+        }
+        long packSize = Files.size(directory.resolve("blobs.pack"));
+        // Simulate content downloaded by a previous run that is no longer referenced, e.g. a previous version of a guide.
+        try (BlobStore store = BlobStore.open(directory)) {
+            store.put("previous content".getBytes(StandardCharsets.UTF_8));
+        }
+        assertThat(Files.size(directory.resolve("blobs.pack"))).isGreaterThan(packSize);
+
+        try (UrlPrefetcher prefetcher = prefetcher()) {
+            assertThat(read(prefetcher.prefetch(uri("/guide")).join())).isEqualTo(CONTENT);
+        }
+        // Unchanged content got revalidated and retained, other content dropped.
+        assertThat(requests).containsExactly("/guide null", "/guide " + ETAG);
+        assertThat(Files.size(directory.resolve("blobs.pack"))).isEqualTo(packSize);
+    }
+
+    @Test
+    void failure() throws IOException {
+        try (UrlPrefetcher prefetcher = prefetcher()) {
+            assertThat(prefetcher.prefetch(uri("/missing")).join()).isNull();
+            var provider = new UrlInputProvider(uri("/missing"), prefetcher.prefetch(uri("/missing")));
+            // Placeholder content.
+            assertThat(provider.size()).isPositive();
+        }
+        assertThat(requests).containsExactly("/missing");
+    }
+}